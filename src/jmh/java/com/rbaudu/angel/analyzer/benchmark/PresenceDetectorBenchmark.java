@@ -0,0 +1,103 @@
+package com.rbaudu.angel.analyzer.benchmark;
+
+import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import com.rbaudu.angel.analyzer.service.video.HogPersonDetector;
+import com.rbaudu.angel.analyzer.service.video.PresenceDetector;
+import com.rbaudu.angel.analyzer.util.InferenceMetrics;
+import com.rbaudu.angel.analyzer.util.ModelLoader;
+import com.rbaudu.angel.analyzer.util.ModelRegistry;
+import com.rbaudu.angel.analyzer.util.ModelReloader;
+import com.rbaudu.angel.analyzer.util.ModelStartup;
+import com.rbaudu.angel.analyzer.util.NativeResourceTracker;
+import com.rbaudu.angel.analyzer.util.VideoUtils;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Latence de bout en bout de {@link PresenceDetector#isPersonPresent(Mat)} : prétraitement,
+ * exécution de la session et décodage des détections, sur le modèle généré par
+ * {@link TinyDetectionModel}.
+ * <p>
+ * Les services sont assemblés à la main, comme le ferait Spring, avec la configuration par
+ * défaut (rechargement à chaud désactivé).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PresenceDetectorBenchmark {
+
+    /** Résolution des images sources */
+    @Param({"320x320", "224x224", "1920x1080"})
+    public String resolution;
+
+    private Path modelDir;
+    private Mat frame;
+    private ModelRegistry registry;
+    private ModelReloader reloader;
+    private PresenceDetector detector;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        modelDir = Files.createTempDirectory("angel-jmh-model");
+        TinyDetectionModel.export(modelDir);
+
+        InferenceConfig inferenceConfig = new InferenceConfig();
+        inferenceConfig.setModelReloadIntervalMs(0);
+        AnalyzerConfig analyzerConfig = new AnalyzerConfig();
+        analyzerConfig.setHumanDetectionModel(modelDir.toString());
+
+        ModelLoader loader = new ModelLoader(inferenceConfig);
+        registry = new ModelRegistry(loader);
+        reloader = new ModelReloader(loader, registry, inferenceConfig);
+        ModelStartup startup = new ModelStartup(registry, event -> { }, inferenceConfig);
+        detector = new PresenceDetector(startup, registry, reloader, new VideoUtils(), analyzerConfig,
+                new NativeResourceTracker(inferenceConfig), inferenceConfig,
+                new HogPersonDetector(inferenceConfig), new InferenceMetrics());
+        detector.init();
+        startup.afterSingletonsInstantiated();
+        if (!detector.isModelLoaded()) {
+            throw new IllegalStateException("Modèle de benchmark non chargé: " + modelDir);
+        }
+
+        frame = SyntheticFrames.create(resolution);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        detector.close();
+        reloader.stop();
+        registry.close();
+        frame.close();
+        try (Stream<Path> files = Files.walk(modelDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean isPersonPresent() {
+        return detector.isPersonPresent(frame);
+    }
+}
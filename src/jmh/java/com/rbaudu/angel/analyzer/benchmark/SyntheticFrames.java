@@ -0,0 +1,34 @@
+package com.rbaudu.angel.analyzer.benchmark;
+
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Scalar;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC3;
+
+/**
+ * Images synthétiques pour les benchmarks : bruit uniforme reproductible, au format BGR 8 bits.
+ */
+final class SyntheticFrames {
+
+    private SyntheticFrames() {
+    }
+
+    /**
+     * Crée une image de bruit à partir d'une résolution "largeurxhauteur" (ex: "1920x1080").
+     * @param resolution Résolution de l'image
+     * @return Image BGR (à fermer par l'appelant)
+     */
+    static Mat create(String resolution) {
+        String[] parts = resolution.toLowerCase().split("x");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Résolution invalide: " + resolution);
+        }
+        int width = Integer.parseInt(parts[0].trim());
+        int height = Integer.parseInt(parts[1].trim());
+        Mat frame = new Mat(height, width, CV_8UC3);
+        opencv_core.setRNGSeed(42);
+        opencv_core.randu(frame, new Mat(Scalar.all(0)), new Mat(Scalar.all(256)));
+        return frame;
+    }
+}
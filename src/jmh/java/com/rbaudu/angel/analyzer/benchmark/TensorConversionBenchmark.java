@@ -0,0 +1,99 @@
+package com.rbaudu.angel.analyzer.benchmark;
+
+import com.rbaudu.angel.analyzer.util.PreprocessingPipeline;
+import com.rbaudu.angel.analyzer.util.TensorConverterUtils;
+import com.rbaudu.angel.analyzer.util.VideoUtils;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorflow.Tensor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chemin image → tensor : conversions de {@link VideoUtils}, de {@link TensorConverterUtils}
+ * et pipeline de prétraitement complet, sur des images synthétiques de plusieurs résolutions.
+ * <p>
+ * Chaque tensor produit est fermé dans la mesure, comme dans les services : le coût mesuré
+ * inclut l'allocation et la libération de la mémoire native.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TensorConversionBenchmark {
+
+    /** Résolution des images sources (entrées des modèles et flux caméra 1080p) */
+    @Param({"320x320", "224x224", "1920x1080"})
+    public String resolution;
+
+    private final VideoUtils videoUtils = new VideoUtils();
+    private final TensorConverterUtils converter = new TensorConverterUtils();
+    private final PreprocessingPipeline presencePipeline = PreprocessingPipeline.uint8Rgb(320, 320);
+    private final PreprocessingPipeline activityPipeline = PreprocessingPipeline.float32Rgb(224, 224);
+
+    private Mat frame;
+    private Tensor uint8Tensor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        frame = SyntheticFrames.create(resolution);
+        uint8Tensor = videoUtils.matToTensorUint8(frame, frame.rows(), frame.cols());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        uint8Tensor.close();
+        frame.close();
+    }
+
+    @Benchmark
+    public long matToTensorUint8() {
+        try (Tensor tensor = videoUtils.matToTensorUint8(frame, frame.rows(), frame.cols())) {
+            return tensor.numBytes();
+        }
+    }
+
+    @Benchmark
+    public long matToTensorFloat32() {
+        try (Tensor tensor = videoUtils.matToTensorFloat32(frame, frame.rows(), frame.cols())) {
+            return tensor.numBytes();
+        }
+    }
+
+    @Benchmark
+    public long convertUint8ToFloat32() {
+        try (Tensor tensor = converter.convertUint8ToFloat32(uint8Tensor)) {
+            return tensor.numBytes();
+        }
+    }
+
+    /** Prétraitement du modèle de présence : redimensionnement 320x320, RGB, uint8 */
+    @Benchmark
+    public long presencePreprocessing() {
+        try (Tensor tensor = presencePipeline.apply(frame)) {
+            return tensor.numBytes();
+        }
+    }
+
+    /** Prétraitement du modèle d'activités : redimensionnement 224x224, RGB, float32 (0-1) */
+    @Benchmark
+    public long activityPreprocessing() {
+        try (Tensor tensor = activityPipeline.apply(frame)) {
+            return tensor.numBytes();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.rbaudu.angel.analyzer.benchmark;
+
+import org.tensorflow.Graph;
+import org.tensorflow.Operand;
+import org.tensorflow.SavedModelBundle;
+import org.tensorflow.Session;
+import org.tensorflow.Signature;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Placeholder;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TUint8;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Génère localement un SavedModel minuscule ayant la même signature qu'un détecteur SSD de
+ * l'API TF Object Detection : entrée uint8 [N, 320, 320, 3], sorties {@code detection_classes},
+ * {@code detection_scores}, {@code detection_boxes} et {@code num_detections}.
+ * <p>
+ * Le graphe se contente de réduire l'image à sa luminosité moyenne : le coût de la session est
+ * négligeable et le benchmark mesure le chemin Java (prétraitement, appel, décodage) autour.
+ */
+final class TinyDetectionModel {
+
+    private static final int INPUT_SIZE = 320;
+    private static final int MAX_DETECTIONS = 100;
+
+    private TinyDetectionModel() {
+    }
+
+    /**
+     * Exporte le modèle dans un répertoire.
+     * @param exportDir Répertoire de destination (créé si besoin)
+     * @throws IOException En cas d'erreur d'écriture
+     */
+    static void export(Path exportDir) throws IOException {
+        try (Graph graph = new Graph(); Session session = new Session(graph)) {
+            Ops tf = Ops.create(graph);
+            Placeholder<TUint8> input = tf.withName("input_tensor")
+                    .placeholder(TUint8.class, Placeholder.shape(Shape.of(-1, INPUT_SIZE, INPUT_SIZE, 3)));
+
+            // Score par image : luminosité moyenne (0-1), décroissante sur les détections
+            Operand<TFloat32> brightness = tf.math.div(
+                    tf.math.mean(tf.dtypes.cast(input, TFloat32.class), tf.constant(new int[] {1, 2, 3})),
+                    tf.constant(255f));
+            float[][] decay = new float[1][MAX_DETECTIONS];
+            for (int i = 0; i < MAX_DETECTIONS; i++) {
+                decay[0][i] = 1f - (float) i / MAX_DETECTIONS;
+            }
+            Operand<TFloat32> scores = tf.math.mul(tf.expandDims(brightness, tf.constant(-1)), tf.constant(decay));
+            Operand<TFloat32> classes = tf.onesLike(scores);
+            Operand<TFloat32> boxes = tf.math.mul(tf.expandDims(scores, tf.constant(-1)),
+                    tf.constant(new float[][][] {{{0.1f, 0.1f, 0.9f, 0.9f}}}));
+            Operand<TFloat32> numDetections = tf.sum(classes, tf.constant(1));
+
+            Signature signature = Signature.builder()
+                    .key(Signature.DEFAULT_KEY)
+                    .input("input_tensor", input)
+                    .output("detection_classes", classes)
+                    .output("detection_scores", scores)
+                    .output("detection_boxes", boxes)
+                    .output("num_detections", numDetections)
+                    .build();
+            SavedModelBundle.exporter(exportDir.toString())
+                    .withSession(session)
+                    .withSignature(signature)
+                    .export();
+        }
+    }
+}
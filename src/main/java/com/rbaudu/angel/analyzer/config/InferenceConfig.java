@@ -0,0 +1,647 @@
+package com.rbaudu.angel.analyzer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration du moteur d'inférence (gestion des ressources natives, performances).
+ * Complète {@link AnalyzerConfig} pour les réglages propres à l'exécution des modèles.
+ * Propriétés préfixées par {@code angel.analyzer.inference}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "angel.analyzer.inference")
+public class InferenceConfig {
+    
+    /**
+     * Active le comptage des allocations natives vivantes (tensors, Mat) par composant.
+     */
+    private boolean leakDetection = false;
+    
+    /**
+     * Nombre maximal d'images regroupées dans un même appel du modèle de détection de présence.
+     */
+    private int batchMaxSize = 8;
+    
+    /**
+     * Attente maximale (ms) avant d'exécuter un lot incomplet, mesurée depuis la plus ancienne image.
+     */
+    private long batchMaxWaitMs = 20;
+    
+    /**
+     * Nombre maximal d'images en attente de traitement par lot (au-delà, les images sont refusées).
+     */
+    private int batchQueueCapacity = 256;
+    
+    /**
+     * Indique que le modèle de détection retourne ses détections triées par score décroissant
+     * (cas des modèles SSD) : le décodage s'arrête dès que les scores passent sous le seuil.
+     */
+    private boolean detectionScoresSorted = true;
+    
+    /**
+     * Largeur maximale des images analysées par le détecteur HOG (réduction en conservant les proportions).
+     */
+    private int hogDownscaleWidth = 640;
+    
+    /**
+     * Pas de la fenêtre de détection HOG, en pixels.
+     */
+    private int hogWinStride = 8;
+    
+    /**
+     * Marge ajoutée autour de l'image pour la détection HOG, en pixels.
+     */
+    private int hogPadding = 8;
+    
+    /**
+     * Facteur d'échelle entre deux niveaux de la pyramide HOG (plus grand = plus rapide, moins précis).
+     */
+    private double hogScale = 1.05;
+    
+    /**
+     * Seuil de score SVM en dessous duquel une fenêtre HOG est ignorée.
+     */
+    private double hogHitThreshold = 0.0;
+    
+    /**
+     * Convertit l'image en niveaux de gris avant la détection HOG (environ 3 fois moins de calcul de gradients).
+     */
+    private boolean hogGrayscale = false;
+    
+    /**
+     * Nombre de threads de l'ordonnanceur d'images multi-flux (0 = nombre de cœurs disponibles).
+     */
+    private int schedulerThreads = 0;
+    
+    /**
+     * Nombre maximal d'images en attente par flux ; au-delà, les plus anciennes sont abandonnées.
+     */
+    private int schedulerStreamQueueCapacity = 1;
+    
+    /**
+     * Largeur de l'image réduite en niveaux de gris utilisée pour la détection de mouvement.
+     */
+    private int motionSampleWidth = 64;
+    
+    /**
+     * Différence moyenne (niveaux de gris, 0-255) au-delà de laquelle un mouvement est détecté.
+     */
+    private double motionThreshold = 4.0;
+    
+    /**
+     * Cadence de la détection de mouvement dans la cascade (une image sur N).
+     */
+    private int cascadeMotionInterval = 1;
+    
+    /**
+     * Cadence maximale de la détection de présence dans la cascade (une image sur N).
+     */
+    private int cascadePresenceInterval = 1;
+    
+    /**
+     * Cadence maximale de la classification d'activités dans la cascade (une image sur N).
+     */
+    private int cascadeActivityInterval = 1;
+    
+    /**
+     * Méthode de détection de changement : MEAN_DIFF (différence moyenne des vignettes) ou DHASH (empreinte perceptuelle 64 bits).
+     */
+    private String motionMode = "MEAN_DIFF";
+    
+    /**
+     * Nombre de bits différents (distance de Hamming) au-delà duquel l'empreinte DHASH signale un changement.
+     */
+    private int motionHashThreshold = 6;
+    
+    /**
+     * Nombre maximal d'images pendant lesquelles un résultat de présence ou d'activités peut être réutilisé sans changement de scène (0 = illimité).
+     */
+    private int cascadeMaxStaticFrames = 0;
+    
+    /**
+     * Durée de validité (ms) d'un résultat mis en cache pour un flux (0 = cache désactivé).
+     */
+    private long resultCacheTtlMs = 500;
+    
+    /**
+     * Nombre maximal de flux conservés dans le cache de résultats (éviction LRU au-delà).
+     */
+    private int resultCacheMaxStreams = 64;
+    
+    /**
+     * Nombre d'images de la fenêtre glissante d'agrégation des scores d'activités.
+     */
+    private int aggregationWindowSize = 16;
+    
+    /**
+     * Coefficient de lissage exponentiel (EMA) des scores d'activités (0-1).
+     */
+    private double aggregationEmaAlpha = 0.3;
+    
+    /**
+     * Moyenne glissante minimale pour qu'une activité devienne l'activité stable d'un flux.
+     */
+    private double aggregationEnterThreshold = 0.6;
+    
+    /**
+     * Score lissé (EMA) en dessous duquel l'activité stable est abandonnée (hystérésis).
+     */
+    private double aggregationExitThreshold = 0.4;
+    
+    /**
+     * Nombre minimal d'images classifiées avant de retenir une activité stable.
+     */
+    private int aggregationMinFrames = 3;
+    
+    /**
+     * Cadence de l'étage activité lorsque l'activité du flux est stable depuis une fenêtre complète (0 = cadence normale).
+     */
+    private int cascadeStableActivityInterval = 0;
+    
+    /**
+     * Intervalle (ms) de vérification des répertoires SavedModel pour le rechargement à chaud (0 = désactivé).
+     */
+    private long modelReloadIntervalMs = 30000;
+    
+    /**
+     * Nombre d'inférences de préchauffage exécutées sur chaque modèle avant sa mise en service.
+     */
+    private int warmUpIterations = 3;
+    
+    /**
+     * Durée maximale (ms) du chargement parallèle des modèles au démarrage.
+     */
+    private long startupTimeoutMs = 300000;
+    
+    /**
+     * Nombre d'emplacements préalloués du tampon circulaire d'images de chaque caméra.
+     */
+    private int frameBufferCapacity = 8;
+    
+    /**
+     * Largeur des emplacements du tampon d'images ; 0 = largeur de la première image reçue.
+     */
+    private int frameBufferWidth = 0;
+    
+    /**
+     * Hauteur des emplacements du tampon d'images ; 0 = hauteur de la première image reçue.
+     */
+    private int frameBufferHeight = 0;
+    
+    /**
+     * Exécute le pipeline de chaque caméra sur un thread virtuel (Java 21+) ; thread classique sinon.
+     */
+    private boolean pipelineVirtualThreads = true;
+    
+    /**
+     * Threads dédiés aux appels TensorFlow des pipelines de caméras ; 0 = nombre de cœurs.
+     */
+    private int pipelineInferenceThreads = 0;
+    
+    /**
+     * Réglages de session TensorFlow par défaut, appliqués aux modèles sans réglage propre.
+     */
+    private SessionSettings session = new SessionSettings();
+    
+    /**
+     * Réglages de session TensorFlow par modèle, indexés par chemin du modèle ou nom de son
+     * répertoire (ex: {@code angel.analyzer.inference.sessions.ssd_mobilenet.intra-op-threads=2}).
+     */
+    private Map<String, SessionSettings> sessions = new LinkedHashMap<>();
+    
+    public boolean isLeakDetection() {
+        return leakDetection;
+    }
+    
+    public void setLeakDetection(boolean leakDetection) {
+        this.leakDetection = leakDetection;
+    }
+    
+    public int getBatchMaxSize() {
+        return batchMaxSize;
+    }
+    
+    public void setBatchMaxSize(int batchMaxSize) {
+        this.batchMaxSize = batchMaxSize;
+    }
+    
+    public long getBatchMaxWaitMs() {
+        return batchMaxWaitMs;
+    }
+    
+    public void setBatchMaxWaitMs(long batchMaxWaitMs) {
+        this.batchMaxWaitMs = batchMaxWaitMs;
+    }
+    
+    public int getBatchQueueCapacity() {
+        return batchQueueCapacity;
+    }
+    
+    public void setBatchQueueCapacity(int batchQueueCapacity) {
+        this.batchQueueCapacity = batchQueueCapacity;
+    }
+    
+    public boolean isDetectionScoresSorted() {
+        return detectionScoresSorted;
+    }
+    
+    public void setDetectionScoresSorted(boolean detectionScoresSorted) {
+        this.detectionScoresSorted = detectionScoresSorted;
+    }
+    
+    public int getHogDownscaleWidth() {
+        return hogDownscaleWidth;
+    }
+    
+    public void setHogDownscaleWidth(int hogDownscaleWidth) {
+        this.hogDownscaleWidth = hogDownscaleWidth;
+    }
+    
+    public int getHogWinStride() {
+        return hogWinStride;
+    }
+    
+    public void setHogWinStride(int hogWinStride) {
+        this.hogWinStride = hogWinStride;
+    }
+    
+    public int getHogPadding() {
+        return hogPadding;
+    }
+    
+    public void setHogPadding(int hogPadding) {
+        this.hogPadding = hogPadding;
+    }
+    
+    public double getHogScale() {
+        return hogScale;
+    }
+    
+    public void setHogScale(double hogScale) {
+        this.hogScale = hogScale;
+    }
+    
+    public double getHogHitThreshold() {
+        return hogHitThreshold;
+    }
+    
+    public void setHogHitThreshold(double hogHitThreshold) {
+        this.hogHitThreshold = hogHitThreshold;
+    }
+    
+    public boolean isHogGrayscale() {
+        return hogGrayscale;
+    }
+    
+    public void setHogGrayscale(boolean hogGrayscale) {
+        this.hogGrayscale = hogGrayscale;
+    }
+    
+    public int getSchedulerThreads() {
+        return schedulerThreads;
+    }
+    
+    public void setSchedulerThreads(int schedulerThreads) {
+        this.schedulerThreads = schedulerThreads;
+    }
+    
+    public int getSchedulerStreamQueueCapacity() {
+        return schedulerStreamQueueCapacity;
+    }
+    
+    public void setSchedulerStreamQueueCapacity(int schedulerStreamQueueCapacity) {
+        this.schedulerStreamQueueCapacity = schedulerStreamQueueCapacity;
+    }
+    
+    public int getMotionSampleWidth() {
+        return motionSampleWidth;
+    }
+    
+    public void setMotionSampleWidth(int motionSampleWidth) {
+        this.motionSampleWidth = motionSampleWidth;
+    }
+    
+    public double getMotionThreshold() {
+        return motionThreshold;
+    }
+    
+    public void setMotionThreshold(double motionThreshold) {
+        this.motionThreshold = motionThreshold;
+    }
+    
+    public int getCascadeMotionInterval() {
+        return cascadeMotionInterval;
+    }
+    
+    public void setCascadeMotionInterval(int cascadeMotionInterval) {
+        this.cascadeMotionInterval = cascadeMotionInterval;
+    }
+    
+    public int getCascadePresenceInterval() {
+        return cascadePresenceInterval;
+    }
+    
+    public void setCascadePresenceInterval(int cascadePresenceInterval) {
+        this.cascadePresenceInterval = cascadePresenceInterval;
+    }
+    
+    public int getCascadeActivityInterval() {
+        return cascadeActivityInterval;
+    }
+    
+    public void setCascadeActivityInterval(int cascadeActivityInterval) {
+        this.cascadeActivityInterval = cascadeActivityInterval;
+    }
+    
+    public String getMotionMode() {
+        return motionMode;
+    }
+    
+    public void setMotionMode(String motionMode) {
+        this.motionMode = motionMode;
+    }
+    
+    public int getMotionHashThreshold() {
+        return motionHashThreshold;
+    }
+    
+    public void setMotionHashThreshold(int motionHashThreshold) {
+        this.motionHashThreshold = motionHashThreshold;
+    }
+    
+    public int getCascadeMaxStaticFrames() {
+        return cascadeMaxStaticFrames;
+    }
+    
+    public void setCascadeMaxStaticFrames(int cascadeMaxStaticFrames) {
+        this.cascadeMaxStaticFrames = cascadeMaxStaticFrames;
+    }
+    
+    public long getResultCacheTtlMs() {
+        return resultCacheTtlMs;
+    }
+    
+    public void setResultCacheTtlMs(long resultCacheTtlMs) {
+        this.resultCacheTtlMs = resultCacheTtlMs;
+    }
+    
+    public int getResultCacheMaxStreams() {
+        return resultCacheMaxStreams;
+    }
+    
+    public void setResultCacheMaxStreams(int resultCacheMaxStreams) {
+        this.resultCacheMaxStreams = resultCacheMaxStreams;
+    }
+    
+    public int getAggregationWindowSize() {
+        return aggregationWindowSize;
+    }
+    
+    public void setAggregationWindowSize(int aggregationWindowSize) {
+        this.aggregationWindowSize = aggregationWindowSize;
+    }
+    
+    public double getAggregationEmaAlpha() {
+        return aggregationEmaAlpha;
+    }
+    
+    public void setAggregationEmaAlpha(double aggregationEmaAlpha) {
+        this.aggregationEmaAlpha = aggregationEmaAlpha;
+    }
+    
+    public double getAggregationEnterThreshold() {
+        return aggregationEnterThreshold;
+    }
+    
+    public void setAggregationEnterThreshold(double aggregationEnterThreshold) {
+        this.aggregationEnterThreshold = aggregationEnterThreshold;
+    }
+    
+    public double getAggregationExitThreshold() {
+        return aggregationExitThreshold;
+    }
+    
+    public void setAggregationExitThreshold(double aggregationExitThreshold) {
+        this.aggregationExitThreshold = aggregationExitThreshold;
+    }
+    
+    public int getAggregationMinFrames() {
+        return aggregationMinFrames;
+    }
+    
+    public void setAggregationMinFrames(int aggregationMinFrames) {
+        this.aggregationMinFrames = aggregationMinFrames;
+    }
+    
+    public int getCascadeStableActivityInterval() {
+        return cascadeStableActivityInterval;
+    }
+    
+    public void setCascadeStableActivityInterval(int cascadeStableActivityInterval) {
+        this.cascadeStableActivityInterval = cascadeStableActivityInterval;
+    }
+    
+    public long getModelReloadIntervalMs() {
+        return modelReloadIntervalMs;
+    }
+    
+    public void setModelReloadIntervalMs(long modelReloadIntervalMs) {
+        this.modelReloadIntervalMs = modelReloadIntervalMs;
+    }
+    
+    public int getWarmUpIterations() {
+        return warmUpIterations;
+    }
+    
+    public void setWarmUpIterations(int warmUpIterations) {
+        this.warmUpIterations = warmUpIterations;
+    }
+    
+    public long getStartupTimeoutMs() {
+        return startupTimeoutMs;
+    }
+    
+    public void setStartupTimeoutMs(long startupTimeoutMs) {
+        this.startupTimeoutMs = startupTimeoutMs;
+    }
+    
+    public SessionSettings getSession() {
+        return session;
+    }
+    
+    public void setSession(SessionSettings session) {
+        this.session = session;
+    }
+    
+    public Map<String, SessionSettings> getSessions() {
+        return sessions;
+    }
+    
+    public void setSessions(Map<String, SessionSettings> sessions) {
+        this.sessions = sessions;
+    }
+    
+    public int getFrameBufferCapacity() {
+        return frameBufferCapacity;
+    }
+    
+    public void setFrameBufferCapacity(int frameBufferCapacity) {
+        this.frameBufferCapacity = frameBufferCapacity;
+    }
+    
+    public int getFrameBufferWidth() {
+        return frameBufferWidth;
+    }
+    
+    public void setFrameBufferWidth(int frameBufferWidth) {
+        this.frameBufferWidth = frameBufferWidth;
+    }
+    
+    public int getFrameBufferHeight() {
+        return frameBufferHeight;
+    }
+    
+    public void setFrameBufferHeight(int frameBufferHeight) {
+        this.frameBufferHeight = frameBufferHeight;
+    }
+    
+    public boolean isPipelineVirtualThreads() {
+        return pipelineVirtualThreads;
+    }
+    
+    public void setPipelineVirtualThreads(boolean pipelineVirtualThreads) {
+        this.pipelineVirtualThreads = pipelineVirtualThreads;
+    }
+    
+    public int getPipelineInferenceThreads() {
+        return pipelineInferenceThreads;
+    }
+    
+    public void setPipelineInferenceThreads(int pipelineInferenceThreads) {
+        this.pipelineInferenceThreads = pipelineInferenceThreads;
+    }
+    
+    /**
+     * Retourne les réglages de session d'un modèle : réglage associé à son chemin, puis au nom
+     * de son répertoire, sinon réglages par défaut.
+     * @param modelPath Chemin du répertoire SavedModel
+     * @return Réglages de session à appliquer
+     */
+    public SessionSettings getSessionSettings(String modelPath) {
+        SessionSettings settings = sessions.get(modelPath);
+        if (settings == null) {
+            Path fileName = Paths.get(modelPath).normalize().getFileName();
+            settings = fileName == null ? null : sessions.get(fileName.toString());
+        }
+        return settings != null ? settings : session;
+    }
+    
+    /**
+     * Réglages d'une session TensorFlow (pools de threads et optimisations du graphe).
+     */
+    public static class SessionSettings {
+        
+        /**
+         * Threads utilisés à l'intérieur d'une opération (ex: produit matriciel) ; 0 = nombre de cœurs.
+         */
+        private int intraOpThreads = 0;
+        
+        /**
+         * Threads exécutant des opérations indépendantes en parallèle ; 0 = nombre de cœurs.
+         */
+        private int interOpThreads = 0;
+        
+        /**
+         * Niveau d'optimisation du graphe : L1 (défaut TensorFlow) ou L0 (optimisations désactivées).
+         */
+        private String optimizerLevel = "L1";
+        
+        /**
+         * Active la compilation XLA (JIT) du graphe.
+         */
+        private boolean jit = false;
+        
+        /**
+         * Alloue des pools de threads propres à la session plutôt que les pools globaux du processus.
+         * Non renseigné : activé dès qu'un nombre de threads est fixé, car les pools globaux sont
+         * dimensionnés par la première session créée et ignorent les réglages des suivantes.
+         */
+        private Boolean perSessionThreads;
+        
+        /**
+         * Nombre de répliques du modèle (chacune avec sa propre session et ce budget de threads)
+         * servant les inférences concurrentes.
+         */
+        private int replicas = 1;
+        
+        public int getIntraOpThreads() {
+            return intraOpThreads;
+        }
+        
+        public void setIntraOpThreads(int intraOpThreads) {
+            this.intraOpThreads = intraOpThreads;
+        }
+        
+        public int getInterOpThreads() {
+            return interOpThreads;
+        }
+        
+        public void setInterOpThreads(int interOpThreads) {
+            this.interOpThreads = interOpThreads;
+        }
+        
+        public String getOptimizerLevel() {
+            return optimizerLevel;
+        }
+        
+        public void setOptimizerLevel(String optimizerLevel) {
+            this.optimizerLevel = optimizerLevel;
+        }
+        
+        public boolean isJit() {
+            return jit;
+        }
+        
+        public void setJit(boolean jit) {
+            this.jit = jit;
+        }
+        
+        /**
+         * Indique si des nombres de threads explicites ont été configurés.
+         */
+        public boolean hasExplicitThreads() {
+            return intraOpThreads > 0 || interOpThreads > 0;
+        }
+        
+        /**
+         * Retourne le réglage effectif : la valeur configurée, sinon {@link #hasExplicitThreads()}.
+         */
+        public boolean isPerSessionThreads() {
+            return perSessionThreads != null ? perSessionThreads : hasExplicitThreads();
+        }
+        
+        public void setPerSessionThreads(Boolean perSessionThreads) {
+            this.perSessionThreads = perSessionThreads;
+        }
+        
+        public int getReplicas() {
+            return replicas;
+        }
+        
+        public void setReplicas(int replicas) {
+            this.replicas = replicas;
+        }
+        
+        @Override
+        public String toString() {
+            return "SessionSettings{intraOpThreads=" + intraOpThreads + ", interOpThreads=" + interOpThreads
+                    + ", optimizerLevel=" + optimizerLevel + ", jit=" + jit
+                    + ", perSessionThreads=" + isPerSessionThreads() + ", replicas=" + replicas + "}";
+        }
+    }
+}
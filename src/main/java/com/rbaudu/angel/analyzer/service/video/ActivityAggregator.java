@@ -0,0 +1,242 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import com.rbaudu.angel.analyzer.model.ActivityType;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agrégation temporelle des scores d'activités par flux.
+ * <p>
+ * Pour chaque flux, les scores des dernières images classifiées sont conservés dans un tampon
+ * circulaire de taille fixe (tableaux primitifs indexés par {@link ActivityType#ordinal()}). La
+ * moyenne glissante et la moyenne exponentielle (EMA) sont mises à jour de façon incrémentale,
+ * en O(nombre de classes) par image.
+ * <p>
+ * L'activité stable d'un flux est choisie avec hystérésis : une activité devient stable lorsque
+ * sa moyenne glissante dépasse le seuil d'entrée, et le reste tant que son EMA ne passe pas sous
+ * le seuil de sortie. Les étiquettes ne clignotent donc plus d'une image à l'autre, et une
+ * activité stable permet d'espacer les classifications.
+ */
+@Component
+public class ActivityAggregator {
+
+    private static final ActivityType[] TYPES = ActivityType.values();
+
+    private final int windowSize;
+    private final float alpha;
+    private final float enterThreshold;
+    private final float exitThreshold;
+    private final int minFrames;
+    private final Map<String, Window> streams = new ConcurrentHashMap<>();
+
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param config Configuration du moteur d'inférence
+     */
+    public ActivityAggregator(InferenceConfig config) {
+        this.windowSize = Math.max(1, config.getAggregationWindowSize());
+        this.alpha = (float) Math.min(1.0, Math.max(0.0, config.getAggregationEmaAlpha()));
+        this.enterThreshold = (float) config.getAggregationEnterThreshold();
+        this.exitThreshold = (float) Math.min(config.getAggregationExitThreshold(), config.getAggregationEnterThreshold());
+        this.minFrames = Math.max(1, Math.min(windowSize, config.getAggregationMinFrames()));
+    }
+
+    /**
+     * Ajoute les scores d'une image classifiée et met à jour l'activité stable du flux.
+     * @param streamId Identifiant du flux
+     * @param scores Scores bruts de l'image
+     * @return Activité stable du flux, ou null si aucune activité n'est stable
+     */
+    public ActivityType update(String streamId, ActivityScores scores) {
+        Window window = streams.computeIfAbsent(streamId, id -> new Window(windowSize, TYPES.length));
+        synchronized (window) {
+            window.add(scores, alpha);
+            window.decide(enterThreshold, exitThreshold, minFrames);
+            return window.stable < 0 ? null : TYPES[window.stable];
+        }
+    }
+
+    /**
+     * Retourne l'activité stable d'un flux.
+     * @param streamId Identifiant du flux
+     * @return Activité stable, ou null si aucune activité n'est stable ou si le flux est inconnu
+     */
+    public ActivityType getStableActivity(String streamId) {
+        Window window = streams.get(streamId);
+        if (window == null) {
+            return null;
+        }
+        synchronized (window) {
+            return window.stable < 0 ? null : TYPES[window.stable];
+        }
+    }
+
+    /**
+     * Indique si l'activité stable du flux n'a pas changé depuis au moins une fenêtre complète.
+     * @param streamId Identifiant du flux
+     * @return true si l'activité du flux est établie
+     */
+    public boolean isSettled(String streamId) {
+        Window window = streams.get(streamId);
+        if (window == null) {
+            return false;
+        }
+        synchronized (window) {
+            return window.stable >= 0 && window.framesSinceChange >= windowSize;
+        }
+    }
+
+    /**
+     * Copie la moyenne glissante des scores d'un flux.
+     * @param streamId Identifiant du flux
+     * @param out Scores à remplir (remis à zéro si le flux est inconnu)
+     * @return Le paramètre {@code out}
+     */
+    public ActivityScores getWindowMean(String streamId, ActivityScores out) {
+        out.clear();
+        Window window = streams.get(streamId);
+        if (window != null) {
+            synchronized (window) {
+                for (int c = 0; c < window.classes; c++) {
+                    out.set(c, window.mean(c));
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Copie la moyenne exponentielle des scores d'un flux.
+     * @param streamId Identifiant du flux
+     * @param out Scores à remplir (remis à zéro si le flux est inconnu)
+     * @return Le paramètre {@code out}
+     */
+    public ActivityScores getEma(String streamId, ActivityScores out) {
+        out.clear();
+        Window window = streams.get(streamId);
+        if (window != null) {
+            synchronized (window) {
+                for (int c = 0; c < window.classes; c++) {
+                    out.set(c, window.ema[c]);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Réinitialise l'historique d'un flux (ex: personne sortie du champ).
+     * @param streamId Identifiant du flux
+     */
+    public void reset(String streamId) {
+        Window window = streams.get(streamId);
+        if (window != null) {
+            synchronized (window) {
+                window.reset();
+            }
+        }
+    }
+
+    /**
+     * Oublie un flux (caméra détachée).
+     * @param streamId Identifiant du flux
+     */
+    public void removeStream(String streamId) {
+        streams.remove(streamId);
+    }
+
+    /**
+     * Fenêtre glissante d'un flux. Les scores sont rangés ligne par ligne dans un unique tableau
+     * ({@code ring[slot * classes + classe]}).
+     */
+    private static final class Window {
+        final int size;
+        final int classes;
+        final float[] ring;
+        final float[] sums;
+        final float[] ema;
+        int head;
+        int count;
+        int stable = -1;
+        long framesSinceChange;
+
+        Window(int size, int classes) {
+            this.size = size;
+            this.classes = classes;
+            this.ring = new float[size * classes];
+            this.sums = new float[classes];
+            this.ema = new float[classes];
+        }
+
+        void add(ActivityScores scores, float alpha) {
+            int base = head * classes;
+            boolean first = count == 0;
+            for (int c = 0; c < classes; c++) {
+                float value = scores.get(c);
+                sums[c] += value - ring[base + c];
+                ring[base + c] = value;
+                ema[c] = first ? value : ema[c] + alpha * (value - ema[c]);
+            }
+            if (count < size) {
+                count++;
+            }
+            head++;
+            if (head == size) {
+                head = 0;
+                // Recalcul complet une fois par tour pour borner la dérive des sommes flottantes
+                recomputeSums();
+            }
+        }
+
+        float mean(int c) {
+            return count == 0 ? 0f : sums[c] / count;
+        }
+
+        void decide(float enterThreshold, float exitThreshold, int minFrames) {
+            int previous = stable;
+            if (stable >= 0 && ema[stable] < exitThreshold) {
+                stable = -1;
+            }
+            if (count >= minFrames) {
+                int best = -1;
+                float bestMean = enterThreshold;
+                for (int c = 0; c < classes; c++) {
+                    float m = mean(c);
+                    if (m >= bestMean) {
+                        bestMean = m;
+                        best = c;
+                    }
+                }
+                // Une autre activité ne remplace l'activité stable que si elle la dépasse en moyenne
+                if (best >= 0 && (stable < 0 || (best != stable && bestMean > mean(stable)))) {
+                    stable = best;
+                }
+            }
+            framesSinceChange = stable == previous ? framesSinceChange + 1 : 0;
+        }
+
+        private void recomputeSums() {
+            for (int c = 0; c < classes; c++) {
+                float sum = 0f;
+                for (int slot = 0; slot < count; slot++) {
+                    sum += ring[slot * classes + c];
+                }
+                sums[c] = sum;
+            }
+        }
+
+        void reset() {
+            Arrays.fill(ring, 0f);
+            Arrays.fill(sums, 0f);
+            Arrays.fill(ema, 0f);
+            head = 0;
+            count = 0;
+            stable = -1;
+            framesSinceChange = 0;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.model.ActivityType;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Scores de confiance par type d'activité, stockés dans un tableau primitif indexé par
+ * {@link ActivityType#ordinal()}.
+ * <p>
+ * Une instance est destinée à être réutilisée d'une image à l'autre ({@link #clear()} puis
+ * remplissage) pour éviter toute allocation par image. Elle n'est pas thread-safe.
+ */
+public class ActivityScores {
+
+    private static final ActivityType[] TYPES = ActivityType.values();
+
+    private final float[] scores = new float[TYPES.length];
+
+    /**
+     * Remet tous les scores à zéro.
+     */
+    public void clear() {
+        Arrays.fill(scores, 0f);
+    }
+
+    /**
+     * Définit le score d'une activité.
+     */
+    public void set(ActivityType activity, float score) {
+        scores[activity.ordinal()] = score;
+    }
+
+    /**
+     * Définit le score à un index {@link ActivityType#ordinal()}.
+     */
+    public void set(int ordinal, float score) {
+        scores[ordinal] = score;
+    }
+
+    /**
+     * Retourne le score d'une activité (0 si non renseigné).
+     */
+    public float get(ActivityType activity) {
+        return scores[activity.ordinal()];
+    }
+
+    /**
+     * Retourne le score à un index {@link ActivityType#ordinal()}.
+     */
+    public float get(int ordinal) {
+        return scores[ordinal];
+    }
+
+    /**
+     * Nombre de types d'activités (taille du tableau de scores).
+     */
+    public int size() {
+        return scores.length;
+    }
+
+    /**
+     * Retourne l'activité de score maximal, ou null si tous les scores sont nuls.
+     */
+    public ActivityType top() {
+        int best = -1;
+        float bestScore = 0f;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > bestScore) {
+                bestScore = scores[i];
+                best = i;
+            }
+        }
+        return best < 0 ? null : TYPES[best];
+    }
+
+    /**
+     * Copie les scores d'une autre instance.
+     */
+    public void copyFrom(ActivityScores other) {
+        System.arraycopy(other.scores, 0, scores, 0, scores.length);
+    }
+
+    /**
+     * Retourne un instantané indépendant de ces scores.
+     */
+    public ActivityScores copy() {
+        ActivityScores copy = new ActivityScores();
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Convertit les scores supérieurs au seuil en map.
+     * @param threshold Seuil de confiance (strict)
+     * @return Map des types d'activités avec leur score de confiance
+     */
+    public Map<ActivityType, Double> toMap(double threshold) {
+        Map<ActivityType, Double> map = new EnumMap<>(ActivityType.class);
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > threshold) {
+                map.put(TYPES[i], (double) scores[i]);
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap(0.0).toString();
+    }
+}
@@ -0,0 +1,389 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Exécution des pipelines de caméras : acquisition → prétraitement → inférence → décodage.
+ * <p>
+ * Chaque caméra a son propre thread, qui passe l'essentiel de son temps bloqué sur
+ * l'acquisition. Sur Java 21 et plus, ce thread est virtuel : un nœud peut alors porter des
+ * centaines de flux à faible cadence sans autant de threads système. Les threads virtuels sont
+ * obtenus par réflexion, avec repli sur des threads classiques sur une JVM plus ancienne.
+ * <p>
+ * Le calcul (analyse en cascade, appels TensorFlow) n'est jamais exécuté sur les threads de
+ * caméra : il est confié à un petit pool fixe de threads dédiés, dimensionné sur les cœurs, et
+ * les sections synchronisées de l'analyse n'immobilisent pas les threads porteurs des threads
+ * virtuels.
+ * <p>
+ * Le thread de caméra n'attend jamais l'analyse : il continue d'acquérir et de publier les
+ * images dans le tampon circulaire du flux. Au plus une image par flux est en cours d'analyse ;
+ * à la fin d'une analyse, seule la dernière image publiée est soumise et les images
+ * intermédiaires sont abandonnées (la dernière image gagne). L'image est d'abord copiée dans
+ * une Mat propre au thread d'inférence, copie validée par son numéro de séquence : l'analyse
+ * en cascade, qui met à jour l'état du flux (image de référence du mouvement, fenêtre
+ * d'activités), ne voit jamais une image en cours de réécriture. Une image écrasée avant sa
+ * copie est ignorée. Le tampon d'un flux n'est libéré qu'une fois l'acquisition arrêtée et la
+ * dernière analyse terminée.
+ */
+@Service
+public class CameraPipelines {
+    private static final Logger logger = LoggerFactory.getLogger(CameraPipelines.class);
+
+    /** Attente maximale (s) des threads de caméra, puis des analyses, à l'arrêt */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    /**
+     * Source d'images d'une caméra.
+     */
+    @FunctionalInterface
+    public interface FrameSource {
+        /**
+         * Lit l'image suivante (appel bloquant).
+         * @param target Mat réutilisée d'une image à l'autre, à remplir
+         * @return false à la fin du flux
+         * @throws Exception En cas d'erreur d'acquisition (le pipeline s'arrête)
+         */
+        boolean grab(Mat target) throws Exception;
+    }
+
+    private final CascadeAnalyzer cascadeAnalyzer;
+    private final FrameRingBuffers frameBuffers;
+    private final ExecutorService inferencePool;
+    private final ThreadFactory cameraThreads;
+    private final boolean virtualThreads;
+    private final Map<String, CameraPipeline> pipelines = new ConcurrentHashMap<>();
+    private final Queue<Mat> workerFrameMats = new ConcurrentLinkedQueue<>();
+    /** Copie de l'image analysée, une par thread d'inférence (pool fixe) */
+    private final ThreadLocal<Mat> workerFrames = ThreadLocal.withInitial(() -> {
+        Mat frame = new Mat();
+        workerFrameMats.add(frame);
+        return frame;
+    });
+
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param cascadeAnalyzer Analyse en cascade des images
+     * @param frameBuffers Tampons d'images par caméra
+     * @param config Configuration du moteur d'inférence
+     */
+    public CameraPipelines(CascadeAnalyzer cascadeAnalyzer, FrameRingBuffers frameBuffers, InferenceConfig config) {
+        this.cascadeAnalyzer = cascadeAnalyzer;
+        this.frameBuffers = frameBuffers;
+        int threads = config.getPipelineInferenceThreads() > 0
+                ? config.getPipelineInferenceThreads()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.inferencePool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "inference-carrier-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ThreadFactory virtual = config.isPipelineVirtualThreads() ? virtualThreadFactory() : null;
+        this.virtualThreads = virtual != null;
+        this.cameraThreads = virtual != null ? virtual : runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+        logger.info("Pipelines de caméras : threads {}, {} threads d'inférence",
+                virtualThreads ? "virtuels" : "classiques", threads);
+    }
+
+    /**
+     * Fabrique de threads virtuels ({@code Thread.ofVirtual().factory()}), obtenue par réflexion
+     * pour rester compatible avec les JVM antérieures à Java 21.
+     * @return Fabrique, ou null si les threads virtuels ne sont pas disponibles
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Threads virtuels non disponibles sur cette JVM ({}), repli sur des threads classiques",
+                    Runtime.version());
+            return null;
+        }
+    }
+
+    /**
+     * Démarre le pipeline d'une caméra.
+     * @param streamId Identifiant du flux (caméra)
+     * @param source Source d'images de la caméra
+     * @param listener Reçoit le résultat de chaque image analysée, sur un thread d'inférence
+     * @throws IllegalStateException si un pipeline est déjà actif pour ce flux
+     */
+    public void start(String streamId, FrameSource source, Consumer<FrameAnalysis> listener) {
+        CameraPipeline pipeline = new CameraPipeline(streamId, source, listener);
+        pipeline.thread = cameraThreads.newThread(() -> run(pipeline));
+        pipeline.thread.setName("camera-" + streamId);
+        if (pipelines.putIfAbsent(streamId, pipeline) != null) {
+            throw new IllegalStateException("Pipeline déjà actif pour le flux " + streamId);
+        }
+        pipeline.thread.start();
+    }
+
+    /**
+     * Boucle d'une caméra : acquisition et publication de chaque image dans le tampon du flux,
+     * sans attendre l'analyse.
+     */
+    private void run(CameraPipeline pipeline) {
+        String streamId = pipeline.streamId;
+        logger.info("Pipeline démarré pour le flux {}", streamId);
+        try (Mat frame = new Mat()) {
+            while (pipeline.running && pipeline.source.grab(frame)) {
+                if (frame.empty()) {
+                    continue;
+                }
+                long sequence = pipeline.publish(frameBuffers.publish(streamId, frame));
+                if (sequence > 0) {
+                    submit(pipeline, sequence);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (pipeline.running) {
+                logger.error("Erreur d'acquisition sur le flux {}, arrêt du pipeline", streamId, e);
+            } else {
+                logger.debug("Acquisition interrompue par l'arrêt du flux {}", streamId, e);
+            }
+        } finally {
+            if (pipeline.finishGrabbing()) {
+                release(pipeline);
+            }
+        }
+    }
+
+    /**
+     * Soumet l'analyse d'une image au pool d'inférence.
+     */
+    private void submit(CameraPipeline pipeline, long sequence) {
+        try {
+            inferencePool.execute(() -> analyze(pipeline, sequence));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Pool d'inférence arrêté, fin du pipeline du flux {}", pipeline.streamId);
+            pipeline.running = false;
+            completed(pipeline);
+        }
+    }
+
+    /**
+     * Copie une image du tampon puis l'analyse, et soumet la dernière image publiée entre-temps
+     * s'il y en a une.
+     */
+    private void analyze(CameraPipeline pipeline, long sequence) {
+        String streamId = pipeline.streamId;
+        try {
+            Mat frame = workerFrames.get();
+            if (!frameBuffers.get(streamId).copy(sequence, frame)) {
+                // Emplacement réutilisé avant ou pendant la copie : l'état du flux n'est pas touché
+                pipeline.overwritten.increment();
+                return;
+            }
+            FrameAnalysis analysis = cascadeAnalyzer.analyze(streamId, frame);
+            pipeline.frames.increment();
+            pipeline.listener.accept(analysis);
+        } catch (Exception e) {
+            logger.error("Erreur lors de l'analyse d'une image du flux {}", streamId, e);
+        } finally {
+            completed(pipeline);
+        }
+    }
+
+    /**
+     * Fin d'une analyse : soumet l'image suivante, ou libère le tampon si l'acquisition est arrêtée.
+     */
+    private void completed(CameraPipeline pipeline) {
+        long next = pipeline.completed();
+        if (next > 0) {
+            submit(pipeline, next);
+        } else if (next == CameraPipeline.RELEASE) {
+            release(pipeline);
+        }
+    }
+
+    /**
+     * Libère le tampon et l'état d'analyse d'un flux (image de référence du mouvement, fenêtre
+     * d'activités, métriques) une fois l'acquisition arrêtée et aucune analyse en cours : un
+     * flux redémarré sous le même identifiant repart de zéro.
+     */
+    private void release(CameraPipeline pipeline) {
+        String streamId = pipeline.streamId;
+        cascadeAnalyzer.removeStream(streamId);
+        frameBuffers.removeStream(streamId);
+        pipelines.remove(streamId, pipeline);
+        logger.info("Pipeline arrêté pour le flux {} ({} images analysées, {} abandonnées, {} écrasées avant la copie)",
+                streamId, pipeline.frames.sum(), pipeline.skipped.sum(), pipeline.overwritten.sum());
+    }
+
+    /**
+     * Arrête le pipeline d'une caméra ; l'image en cours d'analyse est terminée, puis le tampon
+     * du flux est libéré. Le flux reste actif jusque-là.
+     * @param streamId Identifiant du flux
+     */
+    public void stop(String streamId) {
+        CameraPipeline pipeline = pipelines.get(streamId);
+        if (pipeline != null) {
+            pipeline.running = false;
+            pipeline.thread.interrupt();
+        }
+    }
+
+    /**
+     * Indique si les pipelines s'exécutent sur des threads virtuels.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Nombre de pipelines actifs.
+     */
+    public int getActiveCount() {
+        return pipelines.size();
+    }
+
+    /**
+     * Nombre d'images analysées par flux actif.
+     * @return Instantané par flux
+     */
+    public Map<String, Long> getAnalyzedFrames() {
+        Map<String, Long> counts = new TreeMap<>();
+        pipelines.forEach((id, pipeline) -> counts.put(id, pipeline.frames.sum()));
+        return counts;
+    }
+
+    /**
+     * Arrête tous les pipelines puis le pool d'inférence. Les threads de caméra sont attendus
+     * (publication en cours terminée) et les analyses en cours se terminent (l'interruption
+     * n'arrête pas un appel TensorFlow) : les tampons sont libérés par chaque pipeline, avant la
+     * fermeture de {@link FrameRingBuffers}.
+     */
+    @PreDestroy
+    public void shutdown() {
+        List<CameraPipeline> stopping = new ArrayList<>(pipelines.values());
+        stopping.forEach(pipeline -> stop(pipeline.streamId));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SHUTDOWN_TIMEOUT_SECONDS);
+        try {
+            for (CameraPipeline pipeline : stopping) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs > 0) {
+                    pipeline.thread.join(remainingMs);
+                }
+                if (pipeline.thread.isAlive()) {
+                    logger.warn("Acquisition du flux {} toujours bloquée à l'arrêt", pipeline.streamId);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        inferencePool.shutdown();
+        try {
+            if (!inferencePool.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                inferencePool.shutdownNow();
+                if (!inferencePool.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    logger.warn("Analyses toujours en cours à l'arrêt : {} flux actifs", pipelines.size());
+                    return;
+                }
+            }
+            // Pool terminé : plus aucun thread d'inférence n'utilise ses copies d'images
+            Mat frame;
+            while ((frame = workerFrameMats.poll()) != null) {
+                frame.close();
+            }
+        } catch (InterruptedException e) {
+            inferencePool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * État d'un pipeline. La dernière image publiée, l'analyse en cours et la fin de
+     * l'acquisition sont gardées par le moniteur du pipeline : exactement un des deux threads
+     * (caméra ou inférence) libère le tampon, une fois les deux terminés.
+     */
+    private static final class CameraPipeline {
+        /** Retour de {@link #completed()} : le tampon peut être libéré */
+        static final long RELEASE = -1;
+
+        final String streamId;
+        final FrameSource source;
+        final Consumer<FrameAnalysis> listener;
+        final LongAdder frames = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder overwritten = new LongAdder();
+        volatile boolean running = true;
+        Thread thread;
+
+        private long published;
+        private long submitted;
+        private boolean analyzing;
+        private boolean grabbing = true;
+
+        CameraPipeline(String streamId, FrameSource source, Consumer<FrameAnalysis> listener) {
+            this.streamId = streamId;
+            this.source = source;
+            this.listener = listener;
+        }
+
+        /**
+         * Enregistre une image publiée.
+         * @return Séquence à analyser, ou 0 si une analyse est déjà en cours
+         */
+        synchronized long publish(long sequence) {
+            published = sequence;
+            return next();
+        }
+
+        /**
+         * Enregistre la fin d'une analyse.
+         * @return Séquence suivante à analyser, 0 s'il n'y en a pas, ou {@link #RELEASE}
+         */
+        synchronized long completed() {
+            analyzing = false;
+            return grabbing ? next() : RELEASE;
+        }
+
+        /**
+         * Enregistre la fin de l'acquisition.
+         * @return true si aucune analyse n'est en cours (le tampon peut être libéré)
+         */
+        synchronized boolean finishGrabbing() {
+            grabbing = false;
+            return !analyzing;
+        }
+
+        private long next() {
+            if (analyzing || published <= submitted) {
+                return 0;
+            }
+            if (submitted > 0) {
+                skipped.add(published - submitted - 1);
+            }
+            submitted = published;
+            analyzing = true;
+            return submitted;
+        }
+    }
+}
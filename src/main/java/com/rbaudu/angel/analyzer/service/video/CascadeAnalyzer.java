@@ -0,0 +1,269 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import com.rbaudu.angel.analyzer.model.ActivityType;
+import com.rbaudu.angel.analyzer.util.InferenceMetrics;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pipeline en cascade : mouvement → présence → activité.
+ * <p>
+ * Chaque image d'un flux traverse d'abord un contrôle de mouvement très peu coûteux. La
+ * détection de présence n'est exécutée qu'en cas de mouvement, et la classification
+ * d'activités (le modèle le plus lourd) uniquement lorsqu'une personne est présente et que la
+ * scène bouge. Chaque
+ * étage a en outre sa propre cadence (au plus une exécution toutes les N images) ; lorsqu'un
+ * étage n'est pas exécuté, son dernier résultat pour le flux est conservé. Les scores
+ * d'activités sont agrégés dans le temps par {@link ActivityAggregator}.
+ * <p>
+ * Des compteurs par étage indiquent combien d'exécutions ont été évitées par la cadence ou
+ * par l'étage précédent, et donc le calcul économisé.
+ */
+@Service
+public class CascadeAnalyzer {
+    private static final Logger logger = LoggerFactory.getLogger(CascadeAnalyzer.class);
+
+    /** Étages de la cascade */
+    public enum Stage { MOTION, PRESENCE, ACTIVITY }
+
+    private final MotionDetector motionDetector;
+    private final PresenceDetector presenceDetector;
+    private final HogPersonDetector hogDetector;
+    private final VisualActivityClassifier activityClassifier;
+    private final ActivityAggregator activityAggregator;
+    private final InferenceMetrics metrics;
+
+    private final int motionInterval;
+    private final int presenceInterval;
+    private final int activityInterval;
+    private final int stableActivityInterval;
+    private final int maxStaticFrames;
+
+    private final Map<String, StreamState> streams = new ConcurrentHashMap<>();
+    private final StageCounters[] counters = new StageCounters[Stage.values().length];
+
+    /**
+     * Constructeur avec injection de dépendances.
+     */
+    public CascadeAnalyzer(MotionDetector motionDetector, PresenceDetector presenceDetector,
+                           HogPersonDetector hogDetector, VisualActivityClassifier activityClassifier,
+                           ActivityAggregator activityAggregator, InferenceMetrics metrics,
+                           InferenceConfig config) {
+        this.motionDetector = motionDetector;
+        this.presenceDetector = presenceDetector;
+        this.hogDetector = hogDetector;
+        this.activityClassifier = activityClassifier;
+        this.activityAggregator = activityAggregator;
+        this.metrics = metrics;
+        this.motionInterval = Math.max(1, config.getCascadeMotionInterval());
+        this.presenceInterval = Math.max(1, config.getCascadePresenceInterval());
+        this.activityInterval = Math.max(1, config.getCascadeActivityInterval());
+        this.stableActivityInterval = config.getCascadeStableActivityInterval() > 0
+                ? Math.max(activityInterval, config.getCascadeStableActivityInterval())
+                : activityInterval;
+        this.maxStaticFrames = Math.max(0, config.getCascadeMaxStaticFrames());
+        for (Stage stage : Stage.values()) {
+            counters[stage.ordinal()] = new StageCounters();
+        }
+    }
+
+    /**
+     * Analyse une image d'un flux à travers la cascade.
+     * Les images d'un même flux sont traitées l'une après l'autre.
+     * @param streamId Identifiant du flux (caméra)
+     * @param frame Image à analyser (BGR)
+     * @return Instantané du résultat pour cette image
+     */
+    public FrameAnalysis analyze(String streamId, Mat frame) {
+        StreamState state = streams.computeIfAbsent(streamId, id -> new StreamState());
+        synchronized (state) {
+            // Les durées d'inférence mesurées pendant l'analyse sont aussi comptées pour ce flux
+            metrics.enterStream(streamId);
+            try {
+                long index = ++state.frameIndex;
+
+                // Étage 1 : mouvement
+                if (due(state, Stage.MOTION, index, motionInterval, true)) {
+                    state.motion = motionDetector.hasMotion(streamId, frame);
+                }
+
+                // Étage 2 : présence, uniquement en cas de mouvement ; sur une scène statique, le
+                // dernier résultat est réutilisé puis rafraîchi au plus tard toutes les maxStaticFrames images
+                boolean presenceGate = state.motion || (maxStaticFrames > 0
+                        && index - state.lastExecuted[Stage.PRESENCE.ordinal()] >= maxStaticFrames);
+                boolean presenceExecuted = due(state, Stage.PRESENCE, index, presenceInterval, presenceGate);
+                if (presenceExecuted) {
+                    detectPresence(frame, state.presence);
+                }
+
+                // Étage 3 : activité, uniquement si une personne est présente et en cas de mouvement ;
+                // sur une scène statique, les dernières activités sont conservées et rafraîchies au plus
+                // tard toutes les maxStaticFrames images. La cadence est espacée tant que l'activité
+                // agrégée du flux est établie
+                boolean activityGate = state.presence.isPresent() && (state.motion || (maxStaticFrames > 0
+                        && index - state.lastExecuted[Stage.ACTIVITY.ordinal()] >= maxStaticFrames));
+                int interval = activityAggregator.isSettled(streamId) ? stableActivityInterval : activityInterval;
+                boolean activityExecuted = due(state, Stage.ACTIVITY, index, interval, activityGate);
+                if (activityExecuted) {
+                    if (activityClassifier.classifyActivity(frame, state.activities)) {
+                        state.stableActivity = activityAggregator.update(streamId, state.activities);
+                        state.aggregated = true;
+                    }
+                } else if (!state.presence.isPresent()) {
+                    state.activities.clear();
+                    // Personne absente : l'historique d'activités du flux repart de zéro
+                    if (state.aggregated) {
+                        activityAggregator.reset(streamId);
+                        state.aggregated = false;
+                    }
+                    state.stableActivity = null;
+                }
+
+                FrameAnalysis analysis = new FrameAnalysis(streamId, index, System.currentTimeMillis(), state.motion,
+                        state.presence.copy(), state.activities.copy(), state.stableActivity,
+                        presenceExecuted, activityExecuted);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Analyse en cascade: {}", analysis);
+                }
+                return analysis;
+            } finally {
+                metrics.exitStream();
+            }
+        }
+    }
+
+    /**
+     * Détermine si un étage doit être exécuté et met à jour ses compteurs. Un étage s'exécute
+     * si l'étage précédent le permet et si au moins {@code interval} images se sont écoulées
+     * depuis sa dernière exécution sur ce flux.
+     * @param gateOpen Résultat de l'étage précédent (true si l'étage peut s'exécuter)
+     */
+    private boolean due(StreamState state, Stage stage, long frameIndex, int interval, boolean gateOpen) {
+        StageCounters c = counters[stage.ordinal()];
+        c.frames.increment();
+        if (!gateOpen) {
+            c.skippedByGate.increment();
+            return false;
+        }
+        if (frameIndex - state.lastExecuted[stage.ordinal()] < interval) {
+            c.skippedByCadence.increment();
+            return false;
+        }
+        state.lastExecuted[stage.ordinal()] = frameIndex;
+        c.executed.increment();
+        return true;
+    }
+
+    /**
+     * Détection de présence par le modèle TensorFlow, ou par HOG si le modèle n'est pas chargé.
+     */
+    private void detectPresence(Mat frame, PresenceResult result) {
+        if (presenceDetector.isModelLoaded()) {
+            presenceDetector.detectPersons(frame, result);
+        } else {
+            hogDetector.detect(frame, result);
+        }
+    }
+
+    /**
+     * Oublie l'état d'un flux (caméra détachée).
+     * @param streamId Identifiant du flux
+     */
+    public void removeStream(String streamId) {
+        streams.remove(streamId);
+        motionDetector.removeStream(streamId);
+        activityAggregator.removeStream(streamId);
+        metrics.removeStream(streamId);
+    }
+
+    /**
+     * Retourne les compteurs de chaque étage.
+     * @return Instantané des statistiques par étage
+     */
+    public Map<Stage, StageStats> getStageStats() {
+        Map<Stage, StageStats> stats = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            StageCounters c = counters[stage.ordinal()];
+            stats.put(stage, new StageStats(c.frames.sum(), c.executed.sum(),
+                    c.skippedByCadence.sum(), c.skippedByGate.sum()));
+        }
+        return stats;
+    }
+
+    /**
+     * Statistiques d'un étage de la cascade.
+     */
+    public static final class StageStats {
+        private final long frames;
+        private final long executed;
+        private final long skippedByCadence;
+        private final long skippedByGate;
+
+        StageStats(long frames, long executed, long skippedByCadence, long skippedByGate) {
+            this.frames = frames;
+            this.executed = executed;
+            this.skippedByCadence = skippedByCadence;
+            this.skippedByGate = skippedByGate;
+        }
+
+        /** Nombre d'images ayant atteint l'étage */
+        public long getFrames() {
+            return frames;
+        }
+
+        /** Nombre d'exécutions effectives de l'étage */
+        public long getExecuted() {
+            return executed;
+        }
+
+        /** Exécutions évitées par la cadence de l'étage */
+        public long getSkippedByCadence() {
+            return skippedByCadence;
+        }
+
+        /** Exécutions évitées par l'étage précédent (pas de mouvement, personne absente) */
+        public long getSkippedByGate() {
+            return skippedByGate;
+        }
+
+        /** Part des images pour lesquelles l'étage n'a pas été exécuté (0-1) */
+        public double getSkipRate() {
+            return frames == 0 ? 0.0 : 1.0 - (double) executed / frames;
+        }
+
+        @Override
+        public String toString() {
+            return "StageStats{frames=" + frames + ", executed=" + executed
+                    + ", skippedByCadence=" + skippedByCadence + ", skippedByGate=" + skippedByGate
+                    + ", skipRate=" + getSkipRate() + "}";
+        }
+    }
+
+    private static final class StageCounters {
+        final LongAdder frames = new LongAdder();
+        final LongAdder executed = new LongAdder();
+        final LongAdder skippedByCadence = new LongAdder();
+        final LongAdder skippedByGate = new LongAdder();
+    }
+
+    /**
+     * Derniers résultats connus d'un flux.
+     */
+    private static final class StreamState {
+        long frameIndex;
+        final long[] lastExecuted = {Long.MIN_VALUE / 2, Long.MIN_VALUE / 2, Long.MIN_VALUE / 2};
+        boolean motion = true;
+        final PresenceResult presence = new PresenceResult();
+        final ActivityScores activities = new ActivityScores();
+        ActivityType stableActivity;
+        boolean aggregated;
+    }
+}
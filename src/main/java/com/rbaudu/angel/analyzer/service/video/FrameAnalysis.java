@@ -0,0 +1,119 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.model.ActivityType;
+
+import java.util.Map;
+
+/**
+ * Résultat de l'analyse d'une image d'un flux par la cascade mouvement → présence → activité.
+ * <p>
+ * Instantané immuable : les résultats de présence et d'activité sont des copies, qui peuvent
+ * provenir d'une image précédente lorsque l'étage correspondant n'a pas été exécuté.
+ */
+public class FrameAnalysis {
+
+    private final String streamId;
+    private final long frameIndex;
+    private final long timestamp;
+    private final boolean motion;
+    private final PresenceResult presence;
+    private final ActivityScores activities;
+    private final ActivityType stableActivity;
+    private final boolean presenceExecuted;
+    private final boolean activityExecuted;
+
+    FrameAnalysis(String streamId, long frameIndex, long timestamp, boolean motion,
+                  PresenceResult presence, ActivityScores activities, ActivityType stableActivity,
+                  boolean presenceExecuted, boolean activityExecuted) {
+        this.streamId = streamId;
+        this.frameIndex = frameIndex;
+        this.timestamp = timestamp;
+        this.motion = motion;
+        this.presence = presence;
+        this.activities = activities;
+        this.stableActivity = stableActivity;
+        this.presenceExecuted = presenceExecuted;
+        this.activityExecuted = activityExecuted;
+    }
+
+    public String getStreamId() {
+        return streamId;
+    }
+
+    /**
+     * Numéro de l'image dans le flux (à partir de 1).
+     */
+    public long getFrameIndex() {
+        return frameIndex;
+    }
+
+    /**
+     * Date de l'analyse (millisecondes depuis l'époque).
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Indique si un mouvement a été détecté (ou était détecté lors du dernier contrôle).
+     */
+    public boolean isMotion() {
+        return motion;
+    }
+
+    /**
+     * Indique si une personne est présente.
+     */
+    public boolean isPersonPresent() {
+        return presence.isPresent();
+    }
+
+    /**
+     * Détail de la détection de présence. Ne pas modifier.
+     */
+    public PresenceResult getPresence() {
+        return presence;
+    }
+
+    /**
+     * Scores bruts des activités (tous nuls si personne n'est présent). Ne pas modifier.
+     */
+    public ActivityScores getActivityScores() {
+        return activities;
+    }
+
+    /**
+     * Activités dont le score dépasse le seuil donné.
+     */
+    public Map<ActivityType, Double> getActivities(double threshold) {
+        return activities.toMap(threshold);
+    }
+
+    /**
+     * Activité stable du flux après lissage temporel, ou null si aucune activité n'est établie.
+     */
+    public ActivityType getStableActivity() {
+        return stableActivity;
+    }
+
+    /**
+     * Indique si la détection de présence a été exécutée sur cette image.
+     */
+    public boolean isPresenceExecuted() {
+        return presenceExecuted;
+    }
+
+    /**
+     * Indique si la classification d'activités a été exécutée sur cette image.
+     */
+    public boolean isActivityExecuted() {
+        return activityExecuted;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameAnalysis{streamId=" + streamId + ", frameIndex=" + frameIndex
+                + ", motion=" + motion + ", presence=" + presence
+                + ", activities=" + activities + ", stableActivity=" + stableActivity + "}";
+    }
+}
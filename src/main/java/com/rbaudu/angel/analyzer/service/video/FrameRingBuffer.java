@@ -0,0 +1,179 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tampon circulaire d'images d'une caméra, à emplacements natifs préalloués.
+ * <p>
+ * Un unique thread d'acquisition écrit chaque image décodée dans l'emplacement suivant (copie,
+ * ou redimensionnement si la taille diffère) ; aucune Mat n'est allouée après la construction
+ * et la mémoire occupée reste fixe. Chaque image publiée reçoit un numéro de séquence croissant.
+ * <p>
+ * Les lecteurs (threads d'inférence, en nombre quelconque) accèdent aux emplacements sans copie
+ * et sans verrou, selon le principe du seqlock : la version d'un emplacement est impaire pendant
+ * l'écriture et vaut {@code 2 * séquence} une fois l'image publiée. Un lecteur qui a travaillé
+ * directement sur un emplacement vérifie ensuite avec {@link #isValid(long)} que l'écrivain ne
+ * l'a pas réutilisé entre-temps, et ignore son résultat sinon. L'écrivain n'attend jamais les
+ * lecteurs : un lecteur trop lent perd des images, il ne ralentit pas l'acquisition.
+ */
+public class FrameRingBuffer implements AutoCloseable {
+
+    private final Mat[] slots;
+    private final AtomicLongArray versions;
+    private final Size size;
+    private final int type;
+    private volatile long published;
+
+    /**
+     * Crée un tampon et alloue tous ses emplacements.
+     * @param capacity Nombre d'emplacements
+     * @param width Largeur des emplacements
+     * @param height Hauteur des emplacements
+     * @param type Type OpenCV des images (ex: CV_8UC3)
+     */
+    public FrameRingBuffer(int capacity, int width, int height, int type) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacité du tampon insuffisante: " + capacity);
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Dimensions invalides: " + width + "x" + height);
+        }
+        this.slots = new Mat[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Mat(height, width, type);
+        }
+        this.versions = new AtomicLongArray(capacity);
+        this.size = new Size(width, height);
+        this.type = type;
+    }
+
+    /**
+     * Écrit une image dans l'emplacement suivant et la publie. Réservé au thread d'acquisition.
+     * @param frame Image décodée, du type du tampon ; redimensionnée si sa taille diffère
+     * @return Numéro de séquence de l'image publiée
+     */
+    public long publish(Mat frame) {
+        if (frame.type() != type) {
+            throw new IllegalArgumentException("Type d'image " + frame.type() + " différent de celui du tampon " + type);
+        }
+        long sequence = published + 1;
+        int index = index(sequence);
+        Mat slot = slots[index];
+
+        // Version impaire : emplacement en cours d'écriture
+        versions.set(index, 2 * sequence - 1);
+        VarHandle.storeStoreFence();
+        if (frame.cols() == slot.cols() && frame.rows() == slot.rows()) {
+            frame.copyTo(slot);
+        } else {
+            opencv_imgproc.resize(frame, slot, size);
+        }
+        versions.set(index, 2 * sequence);
+        published = sequence;
+        return sequence;
+    }
+
+    /**
+     * Numéro de séquence de la dernière image publiée (0 si aucune).
+     */
+    public long getPublishedSequence() {
+        return published;
+    }
+
+    /**
+     * Plus ancien numéro de séquence encore présent dans le tampon.
+     */
+    public long getOldestSequence() {
+        return Math.max(1, published - slots.length + 1);
+    }
+
+    /**
+     * Retourne l'emplacement d'une image publiée, sans copie. Le contenu peut être réutilisé
+     * par l'écrivain à tout moment : le lecteur doit appeler {@link #isValid(long)} après usage
+     * et ignorer son résultat si l'image a été écrasée. La Mat retournée ne doit pas être
+     * modifiée ni fermée.
+     * @param sequence Numéro de séquence
+     * @return Emplacement contenant l'image, ou null si elle n'est pas ou plus disponible
+     */
+    public Mat peek(long sequence) {
+        return isValid(sequence) ? slots[index(sequence)] : null;
+    }
+
+    /**
+     * Indique si l'image d'un numéro de séquence est toujours intacte dans le tampon.
+     * @param sequence Numéro de séquence
+     * @return true si l'image est publiée et n'a pas été écrasée
+     */
+    public boolean isValid(long sequence) {
+        if (sequence <= 0) {
+            return false;
+        }
+        // Les lectures du contenu de l'emplacement précèdent la relecture de sa version
+        VarHandle.loadLoadFence();
+        return versions.get(index(sequence)) == 2 * sequence;
+    }
+
+    /**
+     * Copie une image publiée dans une Mat du lecteur (réallouée uniquement si sa taille ou son
+     * type diffèrent).
+     * @param sequence Numéro de séquence
+     * @param target Mat cible
+     * @return true si la copie est cohérente, false si l'image n'est pas ou plus disponible
+     */
+    public boolean copy(long sequence, Mat target) {
+        Mat slot = peek(sequence);
+        if (slot == null) {
+            return false;
+        }
+        slot.copyTo(target);
+        return isValid(sequence);
+    }
+
+    /**
+     * Nombre d'emplacements.
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Largeur des images stockées (pixels).
+     */
+    public int getWidth() {
+        return size.width();
+    }
+
+    /**
+     * Hauteur des images stockées (pixels).
+     */
+    public int getHeight() {
+        return size.height();
+    }
+
+    /**
+     * Mémoire native occupée par les emplacements (octets).
+     */
+    public long getSizeBytes() {
+        return slots.length * slots[0].total() * slots[0].elemSize();
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % slots.length);
+    }
+
+    /**
+     * Libère les emplacements. Le tampon ne doit plus être utilisé ensuite.
+     */
+    @Override
+    public void close() {
+        for (Mat slot : slots) {
+            slot.close();
+        }
+        size.close();
+    }
+}
@@ -0,0 +1,121 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tampons circulaires d'images par caméra, partagés entre l'acquisition et les threads d'inférence.
+ * <p>
+ * Le tampon d'une caméra est créé à sa première image, avec {@code frame-buffer-capacity}
+ * emplacements aux dimensions configurées (ou à celles de cette première image). La mémoire
+ * native de chaque caméra est ainsi fixée une fois pour toutes, quel que soit le débit.
+ * <p>
+ * Une fois les tampons fermés (arrêt de l'application), toute publication est refusée : une
+ * écriture en cours se termine avant la libération des emplacements, et aucun tampon n'est
+ * recréé ensuite.
+ */
+@Component
+public class FrameRingBuffers {
+    private static final Logger logger = LoggerFactory.getLogger(FrameRingBuffers.class);
+
+    private final int capacity;
+    private final int width;
+    private final int height;
+    private final Map<String, FrameRingBuffer> buffers = new ConcurrentHashMap<>();
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param config Configuration du moteur d'inférence
+     */
+    public FrameRingBuffers(InferenceConfig config) {
+        this.capacity = Math.max(2, config.getFrameBufferCapacity());
+        this.width = config.getFrameBufferWidth();
+        this.height = config.getFrameBufferHeight();
+    }
+
+    /**
+     * Publie une image d'une caméra dans son tampon. Un seul thread d'acquisition par caméra.
+     * @param streamId Identifiant du flux (caméra)
+     * @param frame Image décodée ; l'appelant en reste propriétaire
+     * @return Numéro de séquence de l'image dans le tampon du flux
+     * @throws IllegalStateException si les tampons ont été fermés
+     */
+    public long publish(String streamId, Mat frame) {
+        // Verrou partagé entre caméras : seule la fermeture l'obtient en exclusivité
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Tampons d'images fermés, image du flux " + streamId + " refusée");
+            }
+            FrameRingBuffer buffer = buffers.get(streamId);
+            if (buffer == null) {
+                buffer = buffers.computeIfAbsent(streamId, id -> create(id, frame));
+            }
+            return buffer.publish(frame);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private FrameRingBuffer create(String streamId, Mat frame) {
+        int w = width > 0 ? width : frame.cols();
+        int h = height > 0 ? height : frame.rows();
+        FrameRingBuffer buffer = new FrameRingBuffer(capacity, w, h, frame.type());
+        logger.info("Tampon d'images créé pour le flux {} : {} emplacements {}x{} ({} octets)",
+                streamId, capacity, w, h, buffer.getSizeBytes());
+        return buffer;
+    }
+
+    /**
+     * Retourne le tampon d'un flux.
+     * @param streamId Identifiant du flux
+     * @return Tampon du flux, ou null si aucune image n'a encore été publiée
+     */
+    public FrameRingBuffer get(String streamId) {
+        return buffers.get(streamId);
+    }
+
+    /**
+     * Libère le tampon d'un flux (caméra détachée). Les lecteurs ne doivent plus y accéder.
+     * @param streamId Identifiant du flux
+     */
+    public void removeStream(String streamId) {
+        FrameRingBuffer buffer = buffers.remove(streamId);
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    /**
+     * Mémoire native occupée par l'ensemble des tampons (octets).
+     */
+    public long getTotalSizeBytes() {
+        return buffers.values().stream().mapToLong(FrameRingBuffer::getSizeBytes).sum();
+    }
+
+    /**
+     * Ferme tous les tampons, après la fin des publications en cours ; les suivantes sont refusées.
+     */
+    @PreDestroy
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+            buffers.values().forEach(FrameRingBuffer::close);
+            buffers.clear();
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+    }
+}
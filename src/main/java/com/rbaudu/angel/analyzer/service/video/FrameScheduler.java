@@ -0,0 +1,275 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Ordonnanceur d'images multi-flux avec contre-pression par caméra.
+ * <p>
+ * Les images de N flux sont réparties sur un pool de threads borné (dimensionné par défaut
+ * sur le nombre de cœurs). Chaque flux a au plus une image en cours de traitement et une file
+ * d'attente de capacité bornée : lorsqu'une caméra prend du retard, ses images les plus
+ * anciennes sont abandonnées au profit des plus récentes (la dernière image gagne). Un modèle
+ * lent ne peut donc jamais accumuler un arriéré non borné.
+ * <p>
+ * Le futur d'une image abandonnée est annulé. L'appelant reste propriétaire des Mat soumises
+ * et peut les libérer dès que le futur associé est terminé (normalement, en erreur ou annulé).
+ */
+@Service
+public class FrameScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(FrameScheduler.class);
+
+    private final int streamQueueCapacity;
+    private final ExecutorService workers;
+    private final Map<String, StreamQueue> streams = new ConcurrentHashMap<>();
+
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param config Configuration du moteur d'inférence
+     */
+    public FrameScheduler(InferenceConfig config) {
+        int threads = config.getSchedulerThreads() > 0
+                ? config.getSchedulerThreads()
+                : Runtime.getRuntime().availableProcessors();
+        this.streamQueueCapacity = Math.max(1, config.getSchedulerStreamQueueCapacity());
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        // La file du pool contient au plus une tâche par flux : elle est bornée par le nombre de flux
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "frame-worker-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        logger.info("Ordonnanceur d'images démarré ({} threads, {} image(s) en attente max par flux)",
+                threads, streamQueueCapacity);
+    }
+
+    /**
+     * Soumet une image d'un flux au traitement.
+     * @param streamId Identifiant du flux (caméra)
+     * @param frame Image à traiter
+     * @param task Traitement à appliquer (ex: {@code presenceDetector::isPersonPresent})
+     * @return Futur du résultat, annulé si l'image est abandonnée au profit d'une plus récente
+     */
+    public <T> CompletableFuture<T> submit(String streamId, Mat frame, Function<Mat, T> task) {
+        StreamQueue queue = streams.computeIfAbsent(streamId, StreamQueue::new);
+        ScheduledFrame<T> scheduled = new ScheduledFrame<>(frame, task);
+
+        queue.pending.offer(scheduled);
+        queue.depth.incrementAndGet();
+        queue.submitted.incrementAndGet();
+
+        // La dernière image gagne : abandon des plus anciennes au-delà de la capacité du flux
+        while (queue.depth.get() > streamQueueCapacity) {
+            ScheduledFrame<?> stale = queue.pending.poll();
+            if (stale == null) {
+                break;
+            }
+            queue.depth.decrementAndGet();
+            queue.dropped.incrementAndGet();
+            stale.future.cancel(false);
+        }
+
+        schedule(queue);
+        return scheduled.future;
+    }
+
+    /**
+     * Planifie le traitement d'un flux s'il n'est pas déjà en cours.
+     */
+    private void schedule(StreamQueue queue) {
+        if (queue.pending.isEmpty() || !queue.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            workers.execute(() -> drain(queue));
+        } catch (RejectedExecutionException e) {
+            queue.scheduled.set(false);
+            ScheduledFrame<?> pending;
+            while ((pending = queue.pending.poll()) != null) {
+                queue.depth.decrementAndGet();
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Traite une image d'un flux puis rend la main, afin de partager équitablement les
+     * threads entre flux ; le flux est replanifié s'il reste des images.
+     */
+    private void drain(StreamQueue queue) {
+        try {
+            ScheduledFrame<?> next = queue.pending.poll();
+            if (next != null) {
+                queue.depth.decrementAndGet();
+                if (next.run()) {
+                    queue.processed.incrementAndGet();
+                }
+            }
+        } finally {
+            queue.scheduled.set(false);
+            schedule(queue);
+        }
+    }
+
+    /**
+     * Nombre d'images en attente pour un flux.
+     * @param streamId Identifiant du flux
+     * @return Profondeur de la file (0 si le flux est inconnu)
+     */
+    public int getQueueDepth(String streamId) {
+        StreamQueue queue = streams.get(streamId);
+        return queue == null ? 0 : queue.depth.get();
+    }
+
+    /**
+     * Retourne les statistiques de tous les flux connus.
+     * @return Instantané des statistiques par flux
+     */
+    public Map<String, StreamStats> getStreamStats() {
+        Map<String, StreamStats> stats = new TreeMap<>();
+        streams.forEach((id, queue) -> stats.put(id, new StreamStats(queue.depth.get(),
+                queue.submitted.get(), queue.processed.get(), queue.dropped.get())));
+        return stats;
+    }
+
+    /**
+     * Oublie un flux (caméra détachée). Les images encore en attente sont annulées.
+     * @param streamId Identifiant du flux
+     */
+    public void removeStream(String streamId) {
+        StreamQueue queue = streams.remove(streamId);
+        if (queue != null) {
+            ScheduledFrame<?> pending;
+            while ((pending = queue.pending.poll()) != null) {
+                queue.depth.decrementAndGet();
+                pending.future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Arrête le pool de threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        streams.keySet().forEach(this::removeStream);
+    }
+
+    /**
+     * Statistiques d'un flux à un instant donné.
+     */
+    public static final class StreamStats {
+        private final int queueDepth;
+        private final long submitted;
+        private final long processed;
+        private final long dropped;
+
+        StreamStats(int queueDepth, long submitted, long processed, long dropped) {
+            this.queueDepth = queueDepth;
+            this.submitted = submitted;
+            this.processed = processed;
+            this.dropped = dropped;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+
+        @Override
+        public String toString() {
+            return "StreamStats{queueDepth=" + queueDepth + ", submitted=" + submitted
+                    + ", processed=" + processed + ", dropped=" + dropped + "}";
+        }
+    }
+
+    /**
+     * File d'attente et compteurs d'un flux.
+     */
+    private static final class StreamQueue {
+        final String streamId;
+        final Queue<ScheduledFrame<?>> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger depth = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicLong submitted = new AtomicLong();
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+
+        StreamQueue(String streamId) {
+            this.streamId = streamId;
+        }
+    }
+
+    /**
+     * Image en attente avec son traitement et son futur.
+     */
+    private static final class ScheduledFrame<T> {
+        final Mat frame;
+        final Function<Mat, T> task;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        ScheduledFrame(Mat frame, Function<Mat, T> task) {
+            this.frame = frame;
+            this.task = task;
+        }
+
+        /**
+         * Applique le traitement, sauf si le futur a déjà été annulé.
+         * @return true si le traitement a été exécuté (avec succès ou en erreur)
+         */
+        boolean run() {
+            if (future.isDone()) {
+                return false;
+            }
+            try {
+                future.complete(task.apply(frame));
+            } catch (Exception e) {
+                logger.error("Erreur lors du traitement d'une image", e);
+                future.completeExceptionally(e);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import org.bytedeco.javacpp.DoublePointer;
+import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.RectVector;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.bytedeco.opencv.opencv_objdetect.HOGDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.lang.ref.Cleaner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_32FC1;
+
+/**
+ * Détecteur de personnes OpenCV (HOG + SVM linéaire), utilisé en secours lorsque
+ * TensorFlow n'est pas disponible.
+ * <p>
+ * Chaque thread dispose d'un descripteur HOG préconfiguré avec le détecteur de personnes par
+ * défaut, ainsi que de ses propres conteneurs de résultats et Mat de travail : aucun objet
+ * natif n'est recréé par image. Les paramètres de la pyramide (pas, marge, échelle, réduction)
+ * sont configurables pour arbitrer entre précision et cadence.
+ * <p>
+ * Le contexte d'un thread est libéré dès que ce thread est terminé et collecté (threads de
+ * pipeline recréés, pools redimensionnés) : la mémoire native ne croît pas avec le nombre de
+ * threads successifs. Les contextes restants sont libérés à l'arrêt.
+ */
+@Component
+public class HogPersonDetector {
+    private static final Logger logger = LoggerFactory.getLogger(HogPersonDetector.class);
+
+    /** Libère le contexte d'un thread une fois ce thread collecté */
+    private static final Cleaner THREAD_CLEANER = Cleaner.create();
+
+    private final int downscaleWidth;
+    private final double hitThreshold;
+    private final double scale;
+    private final boolean grayscale;
+    private final Size winStride;
+    private final Size padding;
+
+    private final Set<HogContext> contexts = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<HogContext> context = ThreadLocal.withInitial(this::createContext);
+
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param config Configuration du moteur d'inférence
+     */
+    public HogPersonDetector(InferenceConfig config) {
+        this.downscaleWidth = config.getHogDownscaleWidth();
+        this.hitThreshold = config.getHogHitThreshold();
+        this.scale = config.getHogScale();
+        this.grayscale = config.isHogGrayscale();
+        this.winStride = new Size(config.getHogWinStride(), config.getHogWinStride());
+        this.padding = new Size(config.getHogPadding(), config.getHogPadding());
+    }
+
+    /**
+     * Détecte si une personne est présente dans l'image.
+     * @param frame Image à analyser (BGR)
+     * @return true si au moins une personne est détectée
+     */
+    public boolean isPersonPresent(Mat frame) {
+        return run(frame).foundLocations.size() > 0;
+    }
+
+    /**
+     * Détecte les personnes dans l'image. Les boîtes sont normalisées par rapport à l'image
+     * et le poids SVM de chaque détection est utilisé comme score.
+     * @param frame Image à analyser (BGR)
+     * @param result Résultat à remplir (effacé au préalable)
+     * @return Le résultat rempli
+     */
+    public PresenceResult detect(Mat frame, PresenceResult result) {
+        result.clear();
+        HogContext ctx = run(frame);
+        float width = ctx.analyzedWidth;
+        float height = ctx.analyzedHeight;
+        long found = ctx.foundLocations.size();
+        for (long i = 0; i < found; i++) {
+            Rect rect = ctx.foundLocations.get(i);
+            float weight = i < ctx.weights.limit() ? (float) ctx.weights.get(i) : 0f;
+            result.addPerson(weight,
+                    rect.y() / height, rect.x() / width,
+                    (rect.y() + rect.height()) / height, (rect.x() + rect.width()) / width);
+        }
+        return result;
+    }
+
+    /**
+     * Exécute la détection multi-échelle avec le contexte du thread courant.
+     */
+    private HogContext run(Mat frame) {
+        HogContext ctx = context.get();
+
+        // Réduction en conservant les proportions, dans une Mat réutilisée
+        Mat input = frame;
+        if (downscaleWidth > 0 && frame.cols() > downscaleWidth) {
+            int height = Math.max(1, (int) Math.round((double) frame.rows() * downscaleWidth / frame.cols()));
+            ctx.size.width(downscaleWidth).height(height);
+            opencv_imgproc.resize(frame, ctx.resized, ctx.size);
+            input = ctx.resized;
+        }
+        if (grayscale && input.channels() > 1) {
+            opencv_imgproc.cvtColor(input, ctx.gray, input.channels() == 4
+                    ? opencv_imgproc.COLOR_BGRA2GRAY : opencv_imgproc.COLOR_BGR2GRAY);
+            input = ctx.gray;
+        }
+        ctx.analyzedWidth = input.cols();
+        ctx.analyzedHeight = input.rows();
+
+        ctx.hog.detectMultiScale(input, ctx.foundLocations, ctx.weights, hitThreshold,
+                winStride, padding, scale, 2.0, false);
+        return ctx;
+    }
+
+    private HogContext createContext() {
+        HogContext ctx = new HogContext();
+        contexts.add(ctx);
+        // L'action ne référence ni le thread ni le détecteur, sans quoi ils ne seraient jamais collectés
+        Set<HogContext> owners = contexts;
+        THREAD_CLEANER.register(Thread.currentThread(), () -> release(owners, ctx));
+        logger.debug("Descripteur HOG initialisé pour le thread {}", Thread.currentThread().getName());
+        return ctx;
+    }
+
+    /**
+     * Libère un contexte s'il ne l'a pas déjà été (thread terminé ou arrêt du détecteur).
+     */
+    private static void release(Set<HogContext> owners, HogContext ctx) {
+        if (owners.remove(ctx)) {
+            ctx.close();
+        }
+    }
+
+    /**
+     * Libère les ressources natives de tous les contextes restants.
+     */
+    @PreDestroy
+    public void close() {
+        for (HogContext ctx : contexts) {
+            release(contexts, ctx);
+        }
+        winStride.close();
+        padding.close();
+    }
+
+    /**
+     * Descripteur et tampons propres à un thread.
+     */
+    private static final class HogContext {
+        final HOGDescriptor hog = new HOGDescriptor();
+        final FloatPointer detector = HOGDescriptor.getDefaultPeopleDetector();
+        final Mat detectorMat = new Mat(1, (int) detector.limit(), CV_32FC1, detector);
+        final RectVector foundLocations = new RectVector();
+        final DoublePointer weights = new DoublePointer();
+        final Mat resized = new Mat();
+        final Mat gray = new Mat();
+        final Size size = new Size();
+        int analyzedWidth;
+        int analyzedHeight;
+
+        HogContext() {
+            hog.setSVMDetector(detectorMat);
+        }
+
+        void close() {
+            hog.close();
+            detectorMat.close();
+            detector.close();
+            foundLocations.close();
+            weights.close();
+            resized.close();
+            gray.close();
+            size.close();
+        }
+    }
+}
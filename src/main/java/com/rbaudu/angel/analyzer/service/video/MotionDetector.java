@@ -0,0 +1,209 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Détecteur de mouvement / changement de scène peu coûteux.
+ * <p>
+ * Chaque image est comparée à l'image de référence du flux, c'est-à-dire la dernière image
+ * ayant signalé un changement : tant que la scène est statique, la référence ne bouge pas,
+ * si bien qu'une dérive lente finit elle aussi par être détectée. Deux méthodes sont disponibles :
+ * <ul>
+ *   <li>{@code MEAN_DIFF} : vignette en niveaux de gris (quelques milliers de pixels), différence
+ *   absolue moyenne comparée à un seuil ;</li>
+ *   <li>{@code DHASH} : empreinte perceptuelle 64 bits (gradient horizontal d'une vignette 9x8),
+ *   distance de Hamming comparée à un seuil ; plus robuste au bruit et aux variations
+ *   d'exposition globales.</li>
+ * </ul>
+ * Les vignettes sont conservées dans des Mat réutilisées par flux.
+ */
+@Component
+public class MotionDetector {
+
+    /** Méthode de comparaison des images */
+    public enum Mode { MEAN_DIFF, DHASH }
+
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+
+    private final Mode mode;
+    private final int sampleWidth;
+    private final double threshold;
+    private final int hashThreshold;
+    private final Map<String, StreamState> streams = new ConcurrentHashMap<>();
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param config Configuration du moteur d'inférence
+     */
+    public MotionDetector(InferenceConfig config) {
+        this.mode = Mode.valueOf(config.getMotionMode().trim().toUpperCase(Locale.ROOT));
+        this.sampleWidth = Math.max(8, config.getMotionSampleWidth());
+        this.threshold = config.getMotionThreshold();
+        this.hashThreshold = config.getMotionHashThreshold();
+    }
+
+    /**
+     * Indique si l'image diffère suffisamment de l'image de référence du même flux.
+     * La première image d'un flux est toujours considérée comme un changement.
+     * @param streamId Identifiant du flux
+     * @param frame Image à analyser (BGR ou niveaux de gris)
+     * @return true si un mouvement / changement de scène est détecté
+     */
+    public boolean hasMotion(String streamId, Mat frame) {
+        StreamState state = streams.computeIfAbsent(streamId, id -> new StreamState());
+        boolean changed;
+        synchronized (state) {
+            changed = mode == Mode.DHASH ? state.hashChanged(frame, hashThreshold)
+                    : state.meanDiffChanged(frame, sampleWidth, threshold);
+        }
+        checks.increment();
+        if (changed) {
+            changes.increment();
+        }
+        return changed;
+    }
+
+    /**
+     * Nombre total d'images contrôlées.
+     */
+    public long getCheckCount() {
+        return checks.sum();
+    }
+
+    /**
+     * Part des images contrôlées ayant signalé un changement (0-1).
+     */
+    public double getChangeRate() {
+        long total = checks.sum();
+        return total == 0 ? 0.0 : (double) changes.sum() / total;
+    }
+
+    /**
+     * Oublie l'état d'un flux (caméra détachée).
+     * @param streamId Identifiant du flux
+     */
+    public void removeStream(String streamId) {
+        StreamState state = streams.remove(streamId);
+        if (state != null) {
+            synchronized (state) {
+                state.close();
+            }
+        }
+    }
+
+    /**
+     * Libère les vignettes de tous les flux.
+     */
+    @PreDestroy
+    public void close() {
+        streams.keySet().forEach(this::removeStream);
+    }
+
+    /**
+     * Référence et Mat de travail d'un flux.
+     */
+    private static final class StreamState {
+        Mat reference = new Mat();
+        Mat current = new Mat();
+        final Mat small = new Mat();
+        final Mat diff = new Mat();
+        final Size size = new Size();
+        boolean hasReference;
+        long referenceHash;
+
+        /**
+         * Différence absolue moyenne entre la vignette courante et la vignette de référence.
+         */
+        boolean meanDiffChanged(Mat frame, int sampleWidth, double threshold) {
+            int height = Math.max(1, (int) Math.round((double) frame.rows() * sampleWidth / frame.cols()));
+            sampleGray(frame, sampleWidth, height, current);
+            if (!hasReference) {
+                swap();
+                return true;
+            }
+            opencv_core.absdiff(current, reference, diff);
+            double difference;
+            try (Scalar mean = opencv_core.mean(diff)) {
+                difference = mean.get(0);
+            }
+            if (difference > threshold) {
+                swap();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Distance de Hamming entre l'empreinte dHash courante et celle de référence.
+         */
+        boolean hashChanged(Mat frame, int hashThreshold) {
+            sampleGray(frame, HASH_WIDTH, HASH_HEIGHT, current);
+            BytePointer pixels = current.data();
+            long hash = 0L;
+            for (int y = 0; y < HASH_HEIGHT; y++) {
+                int row = y * HASH_WIDTH;
+                for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                    hash <<= 1;
+                    if ((pixels.get(row + x) & 0xFF) > (pixels.get(row + x + 1) & 0xFF)) {
+                        hash |= 1L;
+                    }
+                }
+            }
+            if (!hasReference || Long.bitCount(hash ^ referenceHash) > hashThreshold) {
+                referenceHash = hash;
+                hasReference = true;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Réduit l'image puis la convertit en niveaux de gris dans {@code target}.
+         */
+        private void sampleGray(Mat frame, int width, int height, Mat target) {
+            size.width(width).height(height);
+            opencv_imgproc.resize(frame, small, size, 0, 0, opencv_imgproc.INTER_AREA);
+            if (small.channels() == 1) {
+                small.copyTo(target);
+            } else {
+                opencv_imgproc.cvtColor(small, target, small.channels() == 4
+                        ? opencv_imgproc.COLOR_BGRA2GRAY : opencv_imgproc.COLOR_BGR2GRAY);
+            }
+        }
+
+        /**
+         * La vignette courante devient la nouvelle référence.
+         */
+        private void swap() {
+            Mat tmp = reference;
+            reference = current;
+            current = tmp;
+            hasReference = true;
+        }
+
+        void close() {
+            reference.close();
+            current.close();
+            small.close();
+            diff.close();
+            size.close();
+        }
+    }
+}
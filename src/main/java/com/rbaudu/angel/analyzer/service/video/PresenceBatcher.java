@@ -0,0 +1,201 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service de détection de présence par micro-lots pour les nœuds multi-caméras.
+ * <p>
+ * Les images soumises par les différentes caméras sont regroupées dans un unique tensor
+ * [N, 320, 320, 3] puis envoyées en un seul appel au modèle. Un lot est exécuté dès qu'il
+ * atteint la taille maximale configurée, ou lorsque la plus ancienne image a attendu le délai
+ * maximal : la latence ajoutée par le regroupement reste ainsi bornée.
+ * <p>
+ * L'appelant ne doit pas libérer l'image soumise avant la complétion du futur associé.
+ */
+@Service
+public class PresenceBatcher {
+    private static final Logger logger = LoggerFactory.getLogger(PresenceBatcher.class);
+
+    private final PresenceDetector presenceDetector;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingFrame> queue;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong frameCount = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param presenceDetector Détecteur de présence utilisé pour l'inférence
+     * @param config Configuration du moteur d'inférence
+     */
+    public PresenceBatcher(PresenceDetector presenceDetector, InferenceConfig config) {
+        this.presenceDetector = presenceDetector;
+        this.maxBatchSize = Math.max(1, config.getBatchMaxSize());
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getBatchMaxWaitMs()));
+        this.queue = new LinkedBlockingQueue<>(Math.max(maxBatchSize, config.getBatchQueueCapacity()));
+    }
+
+    /**
+     * Démarre le thread de constitution des lots.
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "presence-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        logger.info("Détection de présence par lots démarrée (taille max: {}, attente max: {} ms)",
+                maxBatchSize, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+    }
+
+    /**
+     * Arrête le thread de constitution des lots et fait échouer les images encore en attente.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            try {
+                dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<PendingFrame> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(pending -> pending.future.completeExceptionally(
+                new RejectedExecutionException("Service de détection par lots arrêté")));
+    }
+
+    /**
+     * Soumet une image à la détection de présence par lots.
+     * @param frame Image à analyser (BGR)
+     * @return Futur complété avec true si une personne est détectée
+     */
+    public CompletableFuture<Boolean> submit(Mat frame) {
+        PendingFrame pending = new PendingFrame(frame);
+        if (!running) {
+            pending.future.completeExceptionally(new RejectedExecutionException("Service de détection par lots arrêté"));
+        } else if (!queue.offer(pending)) {
+            pending.future.completeExceptionally(new RejectedExecutionException("File de détection par lots saturée"));
+        }
+        return pending.future;
+    }
+
+    /**
+     * Boucle de constitution des lots : attend une première image, puis complète le lot
+     * jusqu'à la taille maximale ou l'échéance de la plus ancienne image.
+     */
+    private void dispatchLoop() {
+        List<PendingFrame> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                PendingFrame first = queue.take();
+                batch.add(first);
+                long deadline = first.enqueuedAt + maxWaitNanos;
+
+                while (batch.size() < maxBatchSize) {
+                    // Récupérer sans attendre ce qui est déjà disponible
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    if (batch.size() >= maxBatchSize) {
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingFrame next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                runBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.future.completeExceptionally(
+                        new RejectedExecutionException("Service de détection par lots arrêté")));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Exécute un lot et répartit les résultats sur les futurs de chaque image.
+     */
+    private void runBatch(List<PendingFrame> batch) {
+        List<Mat> frames = new ArrayList<>(batch.size());
+        for (PendingFrame pending : batch) {
+            frames.add(pending.frame);
+        }
+        try {
+            boolean[] present = presenceDetector.arePersonsPresent(frames);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(present[i]);
+            }
+        } catch (Exception e) {
+            logger.error("Erreur lors de l'exécution d'un lot de détection de présence", e);
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+        batchCount.incrementAndGet();
+        frameCount.addAndGet(batch.size());
+    }
+
+    /**
+     * Nombre de lots exécutés depuis le démarrage.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Taille moyenne des lots exécutés.
+     */
+    public double getAverageBatchSize() {
+        long batches = batchCount.get();
+        return batches == 0 ? 0.0 : (double) frameCount.get() / batches;
+    }
+
+    /**
+     * Nombre d'images en attente d'un lot.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Image en attente avec son futur de résultat.
+     */
+    private static final class PendingFrame {
+        final Mat frame;
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        PendingFrame(Mat frame) {
+            this.frame = frame;
+        }
+    }
+}
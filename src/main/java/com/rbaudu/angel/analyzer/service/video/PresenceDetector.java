@@ -1,33 +1,41 @@
 package com.rbaudu.angel.analyzer.service.video;
 
 import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
-import com.rbaudu.angel.analyzer.util.ModelLoader;
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import com.rbaudu.angel.analyzer.util.InferenceMetrics;
+import com.rbaudu.angel.analyzer.util.InferenceMetrics.Stage;
+import com.rbaudu.angel.analyzer.util.InferenceScope;
+import com.rbaudu.angel.analyzer.util.ModelHandle;
+import com.rbaudu.angel.analyzer.util.ModelRegistry;
+import com.rbaudu.angel.analyzer.util.ModelReloader;
+import com.rbaudu.angel.analyzer.util.ModelSlot;
+import com.rbaudu.angel.analyzer.util.ModelStartup;
+import com.rbaudu.angel.analyzer.util.NativeResourceTracker;
+import com.rbaudu.angel.analyzer.util.PooledInference;
+import com.rbaudu.angel.analyzer.util.PreparedInference;
+import com.rbaudu.angel.analyzer.util.PreprocessingPipeline;
+import com.rbaudu.angel.analyzer.util.TensorOutputReader;
 import com.rbaudu.angel.analyzer.util.VideoUtils;
-import static org.bytedeco.opencv.global.opencv_core.*;
 import org.bytedeco.opencv.opencv_core.Mat;
-import org.bytedeco.opencv.opencv_core.RectVector;
-import org.bytedeco.opencv.opencv_objdetect.HOGDescriptor;
-import org.bytedeco.javacpp.DoublePointer;
-import org.bytedeco.javacpp.FloatPointer;
+import org.bytedeco.opencv.opencv_core.Scalar;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.tensorflow.Result;
 import org.tensorflow.SavedModelBundle;
-import org.tensorflow.Session;
 import org.tensorflow.Signature;
 import org.tensorflow.Tensor;
 import org.tensorflow.TensorFlow;
-import org.tensorflow.ndarray.FloatNdArray;
-import org.tensorflow.ndarray.NdArrays;
-import org.tensorflow.ndarray.Shape;
 import org.tensorflow.types.TFloat32;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC3;
+
 /**
  * Service responsable de la détection de présence humaine dans les images vidéo.
  */
@@ -35,25 +43,67 @@ import java.util.List;
 public class PresenceDetector {
     private static final Logger logger = LoggerFactory.getLogger(PresenceDetector.class);
     
-    private final ModelLoader modelLoader;
+    /** Taille d'entrée du modèle de détection (SSD MobileNet 320x320) */
+    private static final int INPUT_SIZE = 320;
+    
+    /** Nom du composant pour le suivi des ressources natives */
+    private static final String COMPONENT = "PresenceDetector";
+    
+    /** Nom du modèle dans les métriques d'inférence */
+    private static final String METRICS_MODEL = "presence";
+    
+    /** Sorties de la signature du modèle de détection (API TF Object Detection) */
+    private static final String OUTPUT_CLASSES = "detection_classes";
+    private static final String OUTPUT_SCORES = "detection_scores";
+    private static final String OUTPUT_BOXES = "detection_boxes";
+    private static final String OUTPUT_NUM_DETECTIONS = "num_detections";
+    
+    /** Identifiant de la classe "personne" (COCO) */
+    private static final int PERSON_CLASS = 1;
+    
+    private final ModelStartup modelStartup;
+    private final ModelRegistry modelRegistry;
+    private final InferenceConfig inferenceConfig;
+    private final ModelReloader modelReloader;
     private final VideoUtils videoUtils;
     private final AnalyzerConfig config;
+    private final NativeResourceTracker resourceTracker;
+    private final HogPersonDetector hogDetector;
+    private final InferenceMetrics metrics;
     
-    private SavedModelBundle model;
+    private final ModelSlot<PooledInference> modelSlot;
     private List<String> personClasses = Arrays.asList("person");
+    private final PreprocessingPipeline pipeline;
+    private final TensorOutputReader outputReader = new TensorOutputReader(3);
+    private final ThreadLocal<PresenceResult> threadResult = ThreadLocal.withInitial(PresenceResult::new);
+    private final boolean scoresSorted;
     
     /**
      * Constructeur avec injection de dépendances.
      */
     @Autowired
-    public PresenceDetector(ModelLoader modelLoader, VideoUtils videoUtils, AnalyzerConfig config) {
-        this.modelLoader = modelLoader;
+    public PresenceDetector(ModelStartup modelStartup, ModelRegistry modelRegistry, ModelReloader modelReloader,
+                            VideoUtils videoUtils, AnalyzerConfig config, NativeResourceTracker resourceTracker,
+                            InferenceConfig inferenceConfig, HogPersonDetector hogDetector,
+                            InferenceMetrics metrics) {
+        this.modelStartup = modelStartup;
+        this.modelRegistry = modelRegistry;
+        this.inferenceConfig = inferenceConfig;
+        this.modelReloader = modelReloader;
         this.videoUtils = videoUtils;
         this.config = config;
+        this.resourceTracker = resourceTracker;
+        this.scoresSorted = inferenceConfig.isDetectionScoresSorted();
+        this.hogDetector = hogDetector;
+        this.pipeline = PreprocessingPipeline.uint8Rgb(INPUT_SIZE, INPUT_SIZE).tracked(resourceTracker, COMPONENT);
+        this.metrics = metrics;
+        this.modelSlot = new ModelSlot<>(COMPONENT, this::prepareInference, this::warmUp,
+                inferenceConfig.getWarmUpIterations());
     }
     
     /**
-     * Initialisation du modèle après construction du bean.
+     * Initialisation du modèle après construction du bean. Le modèle est chargé et préchauffé
+     * par {@link ModelStartup}, en parallèle des autres modèles, avant que l'application soit prête.
      */
     @PostConstruct
     public void init() {
@@ -64,22 +114,81 @@ public class PresenceDetector {
             String modelPath = config.getHumanDetectionModel();
             if (modelPath != null && !modelPath.isEmpty()) {
                 logger.info("Chargement du modèle de détection de présence humaine: {}", modelPath);
-                this.model = modelLoader.loadModel(modelPath);
-                logger.info("Modèle de détection de présence humaine chargé avec succès");
-                
-                // Lister les signatures disponibles pour le débogage
-                List<Signature> signatures = model.signatures();
-                signatures.forEach(signature -> {
-                    logger.info("Signature disponible: {}", signature.key());
-                    logger.info("  Entrées: {}", signature.inputNames());
-                    logger.info("  Sorties: {}", signature.outputNames());
-                });
+                modelStartup.register(modelSlot, config::getHumanDetectionModel);
             } else {
                 logger.warn("Aucun modèle de détection de présence humaine configuré");
             }
         } catch (Exception e) {
             logger.error("Erreur lors du chargement du modèle de détection de présence humaine", e);
         }
+        // Un modèle absent ou invalide au démarrage pourra être chargé à chaud
+        modelReloader.watch(modelSlot, config::getHumanDetectionModel);
+    }
+    
+    /**
+     * Prépare le pool de répliques du modèle ; le nombre de répliques et leur budget de threads
+     * sont définis par les réglages de session du modèle.
+     */
+    private PooledInference prepareInference(ModelHandle handle) {
+        int replicas = inferenceConfig.getSessionSettings(handle.getPath()).getReplicas();
+        try {
+            return PooledInference.prepare(modelRegistry, handle, replicas, this::prepareReplica)
+                    .tracked(resourceTracker, COMPONENT);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Chargement des répliques impossible: " + handle.getPath(), e);
+        }
+    }
+    
+    /**
+     * Résout les opérations d'entrée et de sortie d'un modèle de détection depuis sa signature.
+     */
+    private PreparedInference prepareReplica(SavedModelBundle model) {
+        // Lister les signatures disponibles pour le débogage
+        List<Signature> signatures = model.signatures();
+        signatures.forEach(signature -> {
+            logger.info("Signature disponible: {}", signature.key());
+            logger.info("  Entrées: {}", signature.inputNames());
+            logger.info("  Sorties: {}", signature.outputNames());
+        });
+        
+        boolean hasNumDetections = signatures.stream()
+                .anyMatch(signature -> signature.key().equals(Signature.DEFAULT_KEY)
+                        && signature.outputNames().contains(OUTPUT_NUM_DETECTIONS));
+        PreparedInference inference = hasNumDetections
+                ? PreparedInference.prepare(model, Signature.DEFAULT_KEY, null,
+                        OUTPUT_CLASSES, OUTPUT_SCORES, OUTPUT_BOXES, OUTPUT_NUM_DETECTIONS)
+                : PreparedInference.prepare(model, Signature.DEFAULT_KEY, null,
+                        OUTPUT_CLASSES, OUTPUT_SCORES, OUTPUT_BOXES);
+        logger.info("Inférence par lot {}",
+                inference.isBatchSupported() ? "supportée" : "non supportée (batch fixé à 1)");
+        return inference;
+    }
+    
+    /**
+     * Exécute une inférence sur une image noire, aux dimensions d'entrée réelles, avant la mise
+     * en service du modèle, afin que l'initialisation du graphe ne soit pas payée par la
+     * première image réelle.
+     */
+    private void warmUp(PooledInference inference) {
+        try (InferenceScope scope = resourceTracker.openScope(COMPONENT)) {
+            Mat blank = scope.track(resourceTracker.allocated(COMPONENT,
+                    new Mat(INPUT_SIZE, INPUT_SIZE, CV_8UC3, Scalar.all(0))));
+            Tensor input = scope.track(pipeline.apply(blank));
+            for (PreparedInference replica : inference.getReplicas()) {
+                scope.track(resourceTracker.allocated(COMPONENT, replica.run(input)));
+            }
+        }
+    }
+    
+    /**
+     * Rend la référence sur le modèle partagé et libère les Mat de travail du prétraitement.
+     */
+    @PreDestroy
+    public void close() {
+        modelSlot.close();
+        pipeline.close();
     }
     
     /**
@@ -88,93 +197,208 @@ public class PresenceDetector {
      * @return true si une personne est détectée, false sinon
      */
     public boolean isPersonPresent(Mat frame) {
-        if (model == null) {
+        return detectPersons(frame, threadResult.get()).isPresent();
+    }
+    
+    /**
+     * Détecte les personnes présentes dans l'image, avec leur score et leur boîte englobante.
+     * @param frame Image à analyser
+     * @param result Résultat à remplir (effacé au préalable), réutilisable d'une image à l'autre
+     * @return Le résultat rempli
+     */
+    public PresenceResult detectPersons(Mat frame, PresenceResult result) {
+        result.clear();
+        ModelSlot.Lease<PooledInference> lease = modelSlot.lease();
+        if (lease == null) {
             logger.warn("Détection de présence impossible : modèle non chargé");
-            return false;
+            return result;
         }
         
-        try {
-            // Redimensionner et prétraiter l'image
-            Mat processedFrame = videoUtils.resizeFrame(frame, 320, 320);
-            Tensor imageTensor = videoUtils.prepareImageForModel(processedFrame, 320, 320, false);
+        try (lease) {
+            return detect(lease.get(), frame, result);
+        } catch (Exception e) {
+            logger.error("Erreur lors de la détection de présence", e);
+            result.clear();
+            return result;
+        }
+    }
+    
+    /**
+     * Détecte les personnes d'une image avec le modèle emprunté ; les erreurs sont propagées.
+     */
+    private PresenceResult detect(PooledInference inference, Mat frame, PresenceResult result) {
+        long start = System.nanoTime();
+        try (InferenceScope scope = resourceTracker.openScope(COMPONENT)) {
+            // Redimensionner et prétraiter l'image en une seule passe
+            Tensor imageTensor = scope.track(pipeline.apply(frame));
+            metrics.recordPreprocessing(METRICS_MODEL, pipeline.lastTimings());
             
             // Déboguer le tensor d'entrée
             videoUtils.debugTensor(imageTensor, "Tensor d'entrée pour la détection de présence");
             
-            // Exécuter l'inférence avec la nouvelle API TensorFlow
-            Session.Runner runner = model.session().runner()
-                    .feed("serving_default_input_tensor", imageTensor)
-                    .fetch("StatefulPartitionedCall:1")  // Classes
-                    .fetch("StatefulPartitionedCall:2"); // Scores
-            
-            Result result = runner.run();
-            TFloat32 resultClassTensor = (TFloat32) result.get(0);
-            TFloat32 resultScoreTensor = (TFloat32) result.get(1);
-            
-            // Estimer la taille des résultats
-            int estimatedSize = 100; // Valeur typique pour les modèles de détection d'objets
+            // Exécuter l'inférence avec les opérations résolues au chargement
+            long runStart = System.nanoTime();
+            Result outputs = scope.track(inference.run(imageTensor));
+            long decodeStart = System.nanoTime();
+            metrics.record(METRICS_MODEL, Stage.SESSION_RUN, decodeStart - runStart);
+            decodeDetections(inference, outputs, 0, result, false);
+            long end = System.nanoTime();
+            metrics.record(METRICS_MODEL, Stage.DECODE, end - decodeStart);
+            metrics.record(METRICS_MODEL, Stage.TOTAL, end - start);
+            return result;
+        }
+    }
+    
+    /**
+     * Détecte la présence de personnes dans plusieurs images avec une seule exécution du modèle.
+     * Les images sont regroupées dans un tensor [N, 320, 320, 3] ; si le modèle n'accepte qu'une
+     * image par appel (dimension de batch fixée à 1), les images sont traitées une par une.
+     * Contrairement à la détection image par image, une erreur d'inférence est propagée : elle ne
+     * doit pas être confondue avec une absence de personne sur toutes les caméras du lot.
+     * @param frames Images à analyser
+     * @return Pour chaque image, true si une personne est détectée
+     * @throws RuntimeException En cas d'erreur lors du prétraitement ou de l'inférence
+     */
+    public boolean[] arePersonsPresent(List<Mat> frames) {
+        boolean[] present = new boolean[frames.size()];
+        if (frames.isEmpty()) {
+            return present;
+        }
+        ModelSlot.Lease<PooledInference> lease = modelSlot.lease();
+        if (lease == null) {
+            logger.warn("Détection de présence impossible : modèle non chargé");
+            return present;
+        }
+        if (!lease.get().isBatchSupported()) {
+            try (lease) {
+                PresenceResult result = threadResult.get();
+                for (int i = 0; i < frames.size(); i++) {
+                    present[i] = detect(lease.get(), frames.get(i), result).isPresent();
+                }
+            }
+            return present;
+        }
+        
+        long start = System.nanoTime();
+        try (lease; InferenceScope scope = resourceTracker.openScope(COMPONENT)) {
+            PooledInference inference = lease.get();
             
-            // Créer des NdArrays pour extraire les données
-            FloatNdArray classNdArray = NdArrays.ofFloats(Shape.of(estimatedSize));
-            FloatNdArray scoreNdArray = NdArrays.ofFloats(Shape.of(estimatedSize));
+            // Prétraitement de toutes les images dans un seul tensor batché
+            Tensor batchTensor = scope.track(pipeline.apply(frames));
+            metrics.recordPreprocessing(METRICS_MODEL, pipeline.lastTimings());
             
-            // Copier les données depuis les tenseurs
-            resultClassTensor.copyTo(classNdArray);
-            resultScoreTensor.copyTo(scoreNdArray);
+            long runStart = System.nanoTime();
+            Result outputs = scope.track(inference.run(batchTensor));
+            long decodeStart = System.nanoTime();
+            metrics.record(METRICS_MODEL, Stage.SESSION_RUN, decodeStart - runStart);
             
-            // Chercher les détections de personnes
-            for (int i = 0; i < estimatedSize; i++) {
-                float classId = classNdArray.getFloat(i);
-                float score = scoreNdArray.getFloat(i);
-                
-                logger.debug("Détection avec un score de {} et une classe de {}", score, classId);
-
-                if (score > config.getPresenceThreshold()) {
-                    int classIdInt = (int) classId;  // Convertir en entier
-                    if (classIdInt == 1) {  // Classe 1 = personne
-                        logger.debug("Personne détectée avec un score de {}", score);
-                        return true;
-                    }
+            // Répartition des détections par image ; les sorties ne sont lues qu'une fois pour le lot
+            PresenceResult result = threadResult.get();
+            for (int b = 0; b < present.length; b++) {
+                present[b] = decodeDetections(inference, outputs, b, result, b > 0).isPresent();
+            }
+            long end = System.nanoTime();
+            metrics.record(METRICS_MODEL, Stage.DECODE, end - decodeStart);
+            metrics.record(METRICS_MODEL, Stage.TOTAL, end - start);
+            return present;
+        }
+    }
+    
+    /**
+     * Indique si le modèle de détection est chargé et prêt pour l'inférence.
+     */
+    public boolean isModelLoaded() {
+        return modelSlot.isLoaded();
+    }
+    
+    /**
+     * Indique si le modèle chargé accepte plusieurs images par appel.
+     */
+    public boolean isBatchSupported() {
+        try (ModelSlot.Lease<PooledInference> lease = modelSlot.lease()) {
+            return lease != null && lease.get().isBatchSupported();
+        }
+    }
+    
+    /**
+     * Statistiques d'utilisation du pool de répliques du modèle.
+     * @return Instantané des statistiques, ou null si le modèle n'est pas chargé
+     */
+    public PooledInference.PoolStats getInferencePoolStats() {
+        try (ModelSlot.Lease<PooledInference> lease = modelSlot.lease()) {
+            return lease == null ? null : lease.get().getStats();
+        }
+    }
+    
+    /**
+     * Décode les détections de personnes d'une image du batch.
+     * <p>
+     * Avec des scores triés par ordre décroissant (modèles SSD), les sorties sont lues
+     * directement dans les tensors et le parcours s'arrête au premier score sous le seuil :
+     * le coût dépend du nombre de détections réelles et non de la taille fixe de la sortie.
+     * Sinon, les sorties de tout le batch sont copiées en bloc dans des tableaux réutilisés (une
+     * seule fois par batch) et la tranche de l'image est parcourue entièrement.
+     * @param inference Appel préparé ayant produit les sorties
+     * @param outputs Sorties du modèle (classes, scores, boîtes, [nombre de détections])
+     * @param batchIndex Index de l'image dans le batch
+     * @param result Résultat à remplir
+     * @param outputsRead true si ces sorties ont déjà été copiées par ce thread (image précédente du batch)
+     * @return Le résultat rempli
+     */
+    private PresenceResult decodeDetections(PooledInference inference, Result outputs, int batchIndex,
+                                            PresenceResult result, boolean outputsRead) {
+        result.clear();
+        TFloat32 classes = (TFloat32) outputs.get(0);
+        TFloat32 scores = (TFloat32) outputs.get(1);
+        TFloat32 boxes = (TFloat32) outputs.get(2);
+        
+        int detections = (int) scores.shape().get(1);
+        if (inference.getOutputKeys().size() > 3) { // num_detections présent dans la signature
+            detections = Math.min(detections, (int) ((TFloat32) outputs.get(3)).getFloat(batchIndex));
+        }
+        double threshold = config.getPresenceThreshold();
+        
+        if (scoresSorted) {
+            for (int i = 0; i < detections; i++) {
+                float score = scores.getFloat(batchIndex, i);
+                if (score <= threshold) {
+                    break; // Scores triés : les détections suivantes sont toutes sous le seuil
+                }
+                if ((int) classes.getFloat(batchIndex, i) == PERSON_CLASS) {
+                    result.addPerson(score,
+                            boxes.getFloat(batchIndex, i, 0), boxes.getFloat(batchIndex, i, 1),
+                            boxes.getFloat(batchIndex, i, 2), boxes.getFloat(batchIndex, i, 3));
                 }
             }
-            
-            logger.debug("Aucune personne détectée");
-            return false;
-            
-        } catch (Exception e) {
-            logger.error("Erreur lors de la détection de présence", e);
-            e.printStackTrace();
-            return false;
+        } else {
+            int stride = (int) scores.shape().get(1);
+            float[] classValues = outputsRead ? outputReader.current(0) : outputReader.readFloats(classes, 0);
+            float[] scoreValues = outputsRead ? outputReader.current(1) : outputReader.readFloats(scores, 1);
+            float[] boxValues = outputsRead ? outputReader.current(2) : outputReader.readFloats(boxes, 2);
+            int offset = batchIndex * stride;
+            for (int i = offset; i < offset + detections; i++) {
+                float score = scoreValues[i];
+                if (score > threshold && (int) classValues[i] == PERSON_CLASS) {
+                    int box = i * 4;
+                    result.addPerson(score, boxValues[box], boxValues[box + 1], boxValues[box + 2], boxValues[box + 3]);
+                }
+            }
+        }
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Détection de présence: {}", result);
         }
+        return result;
     }
     
     /**
      * Alternative basée sur OpenCV pour la détection de personnes.
      * Utilisé comme solution de secours si TensorFlow ne fonctionne pas.
+     * Délègue au {@link HogPersonDetector}, qui conserve un descripteur préconfiguré par thread.
      */
     public boolean detectPersonWithHOG(Mat frame) {
         try {
-            HOGDescriptor hog = new HOGDescriptor();
-            
-            // Dans OpenCV 4.x, on peut utiliser le détecteur de personnes par défaut directement
-            FloatPointer detector = HOGDescriptor.getDefaultPeopleDetector();
-            Mat detectorMat = new Mat(detector.limit(), 1, CV_32F); 
-            // Convertir BytePointer en FloatPointer et copier les données
-            FloatPointer detectorMatPointer = new FloatPointer(detectorMat.data());
-
-            hog.setSVMDetector(detectorMat);
-            
-            // Conteneurs pour les résultats
-            RectVector foundLocations = new RectVector();
-            DoublePointer weights = new DoublePointer();
-            
-            // Redimensionner pour de meilleures performances
-            Mat resizedFrame = videoUtils.resizeFrame(frame, 640, 480);
-            
-            // Détecter les personnes
-            hog.detectMultiScale(resizedFrame, foundLocations, weights);
-            
-            return foundLocations.size() > 0;
+            return hogDetector.isPersonPresent(frame);
         } catch (Exception e) {
             logger.error("Erreur lors de la détection de personne avec HOG", e);
             return false;
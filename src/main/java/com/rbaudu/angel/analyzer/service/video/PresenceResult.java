@@ -0,0 +1,138 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import java.util.Arrays;
+
+/**
+ * Résultat détaillé d'une détection de présence : nombre de personnes détectées, score et
+ * boîte englobante de chacune (coordonnées normalisées [ymin, xmin, ymax, xmax], triées
+ * par score décroissant lorsque le modèle fournit des scores triés).
+ * <p>
+ * Une instance est destinée à être réutilisée d'une image à l'autre : les tableaux internes
+ * ne sont agrandis que si le nombre de personnes dépasse la capacité courante. Elle n'est pas
+ * thread-safe ; utiliser {@link #copy()} pour en conserver un instantané.
+ */
+public class PresenceResult {
+
+    private static final int BOX_SIZE = 4;
+
+    private int personCount;
+    private float[] scores;
+    private float[] boxes;
+
+    public PresenceResult() {
+        this(4);
+    }
+
+    /**
+     * @param capacity Nombre de personnes pouvant être enregistrées sans réallocation
+     */
+    public PresenceResult(int capacity) {
+        this.scores = new float[Math.max(1, capacity)];
+        this.boxes = new float[scores.length * BOX_SIZE];
+    }
+
+    /**
+     * Efface le résultat (aucune personne détectée).
+     */
+    public void clear() {
+        personCount = 0;
+    }
+
+    /**
+     * Enregistre une personne détectée.
+     * @param score Score de confiance
+     * @param ymin Bord haut normalisé
+     * @param xmin Bord gauche normalisé
+     * @param ymax Bord bas normalisé
+     * @param xmax Bord droit normalisé
+     */
+    public void addPerson(float score, float ymin, float xmin, float ymax, float xmax) {
+        if (personCount == scores.length) {
+            scores = Arrays.copyOf(scores, scores.length * 2);
+            boxes = Arrays.copyOf(boxes, scores.length * BOX_SIZE);
+        }
+        scores[personCount] = score;
+        int b = personCount * BOX_SIZE;
+        boxes[b] = ymin;
+        boxes[b + 1] = xmin;
+        boxes[b + 2] = ymax;
+        boxes[b + 3] = xmax;
+        personCount++;
+    }
+
+    /**
+     * Indique si au moins une personne a été détectée.
+     */
+    public boolean isPresent() {
+        return personCount > 0;
+    }
+
+    /**
+     * Nombre de personnes détectées au-dessus du seuil.
+     */
+    public int getPersonCount() {
+        return personCount;
+    }
+
+    /**
+     * Score de la i-ème personne détectée.
+     */
+    public float getScore(int index) {
+        checkIndex(index);
+        return scores[index];
+    }
+
+    /**
+     * Meilleur score parmi les personnes détectées (0 si aucune).
+     */
+    public float getBestScore() {
+        float best = 0f;
+        for (int i = 0; i < personCount; i++) {
+            best = Math.max(best, scores[i]);
+        }
+        return best;
+    }
+
+    /**
+     * Copie la boîte englobante de la i-ème personne dans {@code box} ([ymin, xmin, ymax, xmax]).
+     * @param index Index de la personne
+     * @param box Tableau de destination d'au moins 4 éléments
+     * @return Le tableau de destination
+     */
+    public float[] getBox(int index, float[] box) {
+        checkIndex(index);
+        System.arraycopy(boxes, index * BOX_SIZE, box, 0, BOX_SIZE);
+        return box;
+    }
+
+    /**
+     * Copie le contenu d'un autre résultat.
+     */
+    public void copyFrom(PresenceResult other) {
+        clear();
+        for (int i = 0; i < other.personCount; i++) {
+            int b = i * BOX_SIZE;
+            addPerson(other.scores[i], other.boxes[b], other.boxes[b + 1], other.boxes[b + 2], other.boxes[b + 3]);
+        }
+    }
+
+    /**
+     * Retourne un instantané indépendant de ce résultat.
+     */
+    public PresenceResult copy() {
+        PresenceResult copy = new PresenceResult(Math.max(1, personCount));
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= personCount) {
+            throw new IndexOutOfBoundsException("Personne " + index + " sur " + personCount);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PresenceResult{personCount=" + personCount + ", bestScore=" + getBestScore() + "}";
+    }
+}
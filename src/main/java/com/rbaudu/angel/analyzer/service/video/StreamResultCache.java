@@ -0,0 +1,205 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache des derniers résultats d'analyse par flux, avec durée de validité.
+ * <p>
+ * Les consommateurs qui interrogent l'état d'une caméra à haute fréquence (tableaux de bord,
+ * moteurs de règles) réutilisent le dernier {@link FrameAnalysis} tant qu'il a moins de
+ * {@code resultCacheTtlMs} millisecondes, au lieu de déclencher une nouvelle inférence. Le
+ * nombre de flux conservés est borné ; au-delà, le flux le moins récemment consulté est évincé.
+ * <p>
+ * Au plus un calcul est en cours par flux : les consommateurs qui manquent le cache pendant
+ * ce calcul attendent son résultat au lieu de lancer chacun leur propre inférence.
+ */
+@Component
+public class StreamResultCache {
+
+    private final CascadeAnalyzer cascadeAnalyzer;
+    private final long ttlMillis;
+    private final int maxStreams;
+    private final Map<String, FrameAnalysis> entries;
+    private final Map<String, CompletableFuture<FrameAnalysis>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param cascadeAnalyzer Analyseur utilisé en cas d'absence ou d'expiration du résultat
+     * @param config Configuration du moteur d'inférence
+     */
+    public StreamResultCache(CascadeAnalyzer cascadeAnalyzer, InferenceConfig config) {
+        this.cascadeAnalyzer = cascadeAnalyzer;
+        this.ttlMillis = Math.max(0L, config.getResultCacheTtlMs());
+        this.maxStreams = Math.max(1, config.getResultCacheMaxStreams());
+        // Ordre d'accès : l'entrée la plus ancienne est la moins récemment consultée
+        this.entries = new LinkedHashMap<String, FrameAnalysis>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FrameAnalysis> eldest) {
+                if (size() > StreamResultCache.this.maxStreams) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retourne le résultat en cache du flux s'il est encore valide, sinon analyse l'image.
+     * @param streamId Identifiant du flux
+     * @param frame Image courante du flux, analysée uniquement en cas d'absence ou d'expiration
+     * @return Résultat de l'analyse (éventuellement en cache)
+     */
+    public FrameAnalysis analyze(String streamId, Mat frame) {
+        return getOrCompute(streamId, () -> cascadeAnalyzer.analyze(streamId, frame));
+    }
+
+    /**
+     * Retourne le résultat en cache du flux s'il est encore valide, sinon le calcule et le
+     * met en cache. Si un calcul est déjà en cours pour ce flux, son résultat est attendu et
+     * partagé ; le loader n'est alors pas appelé.
+     * @param streamId Identifiant du flux
+     * @param loader Calcul du résultat en cas d'absence ou d'expiration
+     * @return Résultat de l'analyse (éventuellement en cache)
+     */
+    public FrameAnalysis getOrCompute(String streamId, Supplier<FrameAnalysis> loader) {
+        FrameAnalysis cached = get(streamId);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<FrameAnalysis> flight = new CompletableFuture<>();
+        CompletableFuture<FrameAnalysis> current = inFlight.putIfAbsent(streamId, flight);
+        if (current != null) {
+            return await(current);
+        }
+        try {
+            // Un calcul concurrent a pu se terminer entre la consultation du cache et l'inscription
+            FrameAnalysis analysis = lookup(streamId);
+            if (analysis == null) {
+                analysis = loader.get();
+                if (analysis != null) {
+                    put(streamId, analysis);
+                }
+            }
+            flight.complete(analysis);
+            return analysis;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(streamId, flight);
+        }
+    }
+
+    /**
+     * Attend le calcul en cours d'un flux, en relançant telle quelle une erreur du loader.
+     */
+    private static FrameAnalysis await(CompletableFuture<FrameAnalysis> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Retourne le résultat en cache du flux s'il est encore valide.
+     * @param streamId Identifiant du flux
+     * @return Le résultat, ou null s'il est absent ou expiré
+     */
+    public FrameAnalysis get(String streamId) {
+        FrameAnalysis analysis = lookup(streamId);
+        if (analysis != null) {
+            hits.increment();
+            return analysis;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Résultat valide d'un flux, sans mise à jour des compteurs.
+     */
+    private FrameAnalysis lookup(String streamId) {
+        FrameAnalysis analysis;
+        synchronized (entries) {
+            analysis = entries.get(streamId);
+        }
+        if (analysis != null && System.currentTimeMillis() - analysis.getTimestamp() < ttlMillis) {
+            return analysis;
+        }
+        return null;
+    }
+
+    /**
+     * Enregistre le dernier résultat d'un flux (ex: produit par l'ordonnanceur d'images).
+     * Un résultat plus ancien que celui déjà en cache est ignoré.
+     * @param streamId Identifiant du flux
+     * @param analysis Résultat à mettre en cache
+     */
+    public void put(String streamId, FrameAnalysis analysis) {
+        synchronized (entries) {
+            FrameAnalysis current = entries.get(streamId);
+            if (current == null || current.getTimestamp() <= analysis.getTimestamp()) {
+                entries.put(streamId, analysis);
+            }
+        }
+    }
+
+    /**
+     * Invalide le résultat d'un flux.
+     * @param streamId Identifiant du flux
+     */
+    public void invalidate(String streamId) {
+        synchronized (entries) {
+            entries.remove(streamId);
+        }
+    }
+
+    /**
+     * Nombre de flux actuellement en cache.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Part des consultations servies par le cache (0-1).
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+}
@@ -1,30 +1,43 @@
 package com.rbaudu.angel.analyzer.service.video;
 
 import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
 import com.rbaudu.angel.analyzer.model.ActivityType;
-import com.rbaudu.angel.analyzer.util.ModelLoader;
+import com.rbaudu.angel.analyzer.util.InferenceMetrics;
+import com.rbaudu.angel.analyzer.util.InferenceMetrics.Stage;
+import com.rbaudu.angel.analyzer.util.InferenceScope;
+import com.rbaudu.angel.analyzer.util.ModelHandle;
+import com.rbaudu.angel.analyzer.util.ModelRegistry;
+import com.rbaudu.angel.analyzer.util.ModelReloader;
+import com.rbaudu.angel.analyzer.util.ModelSlot;
+import com.rbaudu.angel.analyzer.util.ModelStartup;
+import com.rbaudu.angel.analyzer.util.NativeResourceTracker;
+import com.rbaudu.angel.analyzer.util.PooledInference;
+import com.rbaudu.angel.analyzer.util.PreparedInference;
+import com.rbaudu.angel.analyzer.util.PreprocessingPipeline;
+import com.rbaudu.angel.analyzer.util.TensorOutputReader;
 import com.rbaudu.angel.analyzer.util.VideoUtils;
 import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Scalar;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.tensorflow.Result;
 import org.tensorflow.SavedModelBundle;
-import org.tensorflow.Session;
 import org.tensorflow.Signature;
 import org.tensorflow.Tensor;
 import org.tensorflow.TensorFlow;
-import org.tensorflow.ndarray.FloatNdArray;
-import org.tensorflow.ndarray.NdArrays;
-import org.tensorflow.ndarray.Shape;
 import org.tensorflow.types.TFloat32;
 
 import jakarta.annotation.PostConstruct;
-import java.util.Arrays;
-import java.util.HashMap;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC3;
+
 /**
  * Service de classification d'activités basé sur l'analyse vidéo.
  */
@@ -32,26 +45,64 @@ import java.util.Map;
 public class VisualActivityClassifier {
     private static final Logger logger = LoggerFactory.getLogger(VisualActivityClassifier.class);
     
-    private final ModelLoader modelLoader;
+    /** Nom du composant pour le suivi des ressources natives */
+    private static final String COMPONENT = "VisualActivityClassifier";
+    
+    /** Nom du modèle dans les métriques d'inférence */
+    private static final String METRICS_MODEL = "activity";
+    
+    /** Correspondance précalculée index de sortie du modèle -> type d'activité */
+    private static final ActivityType[] MODEL_CLASSES = new ActivityType[ActivityType.values().length];
+    static {
+        for (int i = 0; i < MODEL_CLASSES.length; i++) {
+            MODEL_CLASSES[i] = mapIndexToActivityType(i);
+        }
+    }
+    
+    private final ModelStartup modelStartup;
+    private final ModelRegistry modelRegistry;
+    private final InferenceConfig inferenceConfig;
+    private final ModelReloader modelReloader;
     private final VideoUtils videoUtils;
     private final AnalyzerConfig config;
+    private final NativeResourceTracker resourceTracker;
+    private final InferenceMetrics metrics;
+    
+    private final ModelSlot<PooledInference> modelSlot;
+    private PreprocessingPipeline pipeline;
     
-    private SavedModelBundle model;
+    private final TensorOutputReader outputReader = new TensorOutputReader(1);
+    private final ThreadLocal<ActivityScores> threadScores = ThreadLocal.withInitial(ActivityScores::new);
     
     /**
      * Constructeur avec injection de dépendances.
-     * @param modelLoader Chargeur de modèle TensorFlow
+     * @param modelStartup Chargement des modèles au démarrage
+     * @param modelRegistry Registre des modèles partagés
+     * @param modelReloader Rechargement à chaud des modèles
      * @param videoUtils Utilitaires vidéo
      * @param config Configuration de l'analyseur
+     * @param resourceTracker Suivi des ressources natives
+     * @param inferenceConfig Configuration du moteur d'inférence
+     * @param metrics Métriques de latence de l'inférence
      */
-    public VisualActivityClassifier(ModelLoader modelLoader, VideoUtils videoUtils, AnalyzerConfig config) {
-        this.modelLoader = modelLoader;
+    public VisualActivityClassifier(ModelStartup modelStartup, ModelRegistry modelRegistry, ModelReloader modelReloader,
+                                    VideoUtils videoUtils, AnalyzerConfig config, NativeResourceTracker resourceTracker,
+                                    InferenceConfig inferenceConfig, InferenceMetrics metrics) {
+        this.modelStartup = modelStartup;
+        this.modelRegistry = modelRegistry;
+        this.inferenceConfig = inferenceConfig;
+        this.modelReloader = modelReloader;
         this.videoUtils = videoUtils;
         this.config = config;
+        this.resourceTracker = resourceTracker;
+        this.metrics = metrics;
+        this.modelSlot = new ModelSlot<>(COMPONENT, this::prepareInference, this::warmUp,
+                inferenceConfig.getWarmUpIterations());
     }
     
     /**
-     * Initialisation du modèle après construction du bean.
+     * Initialisation du modèle après construction du bean. Le modèle est chargé et préchauffé
+     * par {@link ModelStartup}, en parallèle des autres modèles, avant que l'application soit prête.
      */
     @PostConstruct
     public void init() {
@@ -59,23 +110,95 @@ public class VisualActivityClassifier {
             // Afficher la version de TensorFlow pour débogage
             logger.info("Version de TensorFlow: {}", TensorFlow.version());
             
+            // Prétraitement float32 (0-1) pour MobileNetV2
+            this.pipeline = PreprocessingPipeline.float32Rgb(
+                    config.getInputImageWidth(),
+                    config.getInputImageHeight()).tracked(resourceTracker, COMPONENT);
+            
             if (config.getActivityRecognitionModel() != null) {
-                this.model = modelLoader.loadModel(config.getActivityRecognitionModel());
-                logger.info("Modèle de classification d'activités chargé avec succès");
-                
-                // Lister les signatures disponibles pour le débogage
-                List<Signature> signatures = model.signatures();
-                signatures.forEach(signature -> {
-                    logger.info("Signature disponible: {}", signature.key());
-                    logger.info("  Entrées: {}", signature.inputNames());
-                    logger.info("  Sorties: {}", signature.outputNames());
-                });
+                modelStartup.register(modelSlot, config::getActivityRecognitionModel);
             } else {
                 logger.warn("Aucun modèle de classification d'activités configuré");
             }
         } catch (Exception e) {
             logger.error("Erreur lors du chargement du modèle de classification d'activités", e);
         }
+        // Un modèle absent ou invalide au démarrage pourra être chargé à chaud
+        modelReloader.watch(modelSlot, config::getActivityRecognitionModel);
+    }
+    
+    /**
+     * Prépare le pool de répliques du modèle ; le nombre de répliques et leur budget de threads
+     * sont définis par les réglages de session du modèle.
+     */
+    private PooledInference prepareInference(ModelHandle handle) {
+        int replicas = inferenceConfig.getSessionSettings(handle.getPath()).getReplicas();
+        try {
+            return PooledInference.prepare(modelRegistry, handle, replicas, this::prepareReplica)
+                    .tracked(resourceTracker, COMPONENT);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Chargement des répliques impossible: " + handle.getPath(), e);
+        }
+    }
+    
+    /**
+     * Résout les opérations d'entrée et de sortie d'un modèle de classification depuis sa signature.
+     */
+    private PreparedInference prepareReplica(SavedModelBundle model) {
+        // Lister les signatures disponibles pour le débogage
+        List<Signature> signatures = model.signatures();
+        signatures.forEach(signature -> {
+            logger.info("Signature disponible: {}", signature.key());
+            logger.info("  Entrées: {}", signature.inputNames());
+            logger.info("  Sorties: {}", signature.outputNames());
+        });
+        return PreparedInference.prepare(model, Signature.DEFAULT_KEY, null);
+    }
+    
+    /**
+     * Exécute une inférence sur une image noire, aux dimensions d'entrée réelles, avant la mise
+     * en service du modèle, afin que l'initialisation du graphe ne soit pas payée par la
+     * première image réelle.
+     */
+    private void warmUp(PooledInference inference) {
+        try (InferenceScope scope = resourceTracker.openScope(COMPONENT)) {
+            Mat blank = scope.track(resourceTracker.allocated(COMPONENT,
+                    new Mat(pipeline.getHeight(), pipeline.getWidth(), CV_8UC3, Scalar.all(0))));
+            Tensor input = scope.track(pipeline.apply(blank));
+            for (PreparedInference replica : inference.getReplicas()) {
+                scope.track(resourceTracker.allocated(COMPONENT, replica.run(input)));
+            }
+        }
+    }
+    
+    /**
+     * Rend la référence sur le modèle partagé et libère les Mat de travail du prétraitement.
+     */
+    @PreDestroy
+    public void close() {
+        modelSlot.close();
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+    
+    /**
+     * Indique si le modèle de classification est chargé et prêt pour l'inférence.
+     */
+    public boolean isModelLoaded() {
+        return modelSlot.isLoaded();
+    }
+    
+    /**
+     * Statistiques d'utilisation du pool de répliques du modèle.
+     * @return Instantané des statistiques, ou null si le modèle n'est pas chargé
+     */
+    public PooledInference.PoolStats getInferencePoolStats() {
+        try (ModelSlot.Lease<PooledInference> lease = modelSlot.lease()) {
+            return lease == null ? null : lease.get().getStats();
+        }
     }
     
     /**
@@ -84,63 +207,140 @@ public class VisualActivityClassifier {
      * @return Map des types d'activités avec leur score de confiance
      */
     public Map<ActivityType, Double> classifyActivity(Mat frame) {
-        if (model == null) {
+        ActivityScores scores = threadScores.get();
+        if (!classifyActivity(frame, scores)) {
+            return new EnumMap<>(ActivityType.class);
+        }
+        
+        Map<ActivityType, Double> activities = scores.toMap(config.getActivityConfidenceThreshold());
+        logger.debug("Activités classifiées: {}", activities);
+        return activities;
+    }
+    
+    /**
+     * Classifie l'activité visible dans l'image et écrit les scores bruts dans une structure
+     * réutilisable. En régime établi, cette méthode n'alloue rien sur le tas Java.
+     * @param frame Image à analyser
+     * @param scores Scores à remplir (remis à zéro au préalable)
+     * @return true si la classification a pu être effectuée
+     */
+    public boolean classifyActivity(Mat frame, ActivityScores scores) {
+        scores.clear();
+        ModelSlot.Lease<PooledInference> lease = modelSlot.lease();
+        if (lease == null) {
             logger.warn("Classification d'activités impossible : modèle non chargé");
-            return new HashMap<>();
+            return false;
         }
         
-        try {
+        long start = System.nanoTime();
+        try (lease; InferenceScope scope = resourceTracker.openScope(COMPONENT)) {
+            PooledInference inference = lease.get();
+            
             // Prétraitement de l'image - utiliser float32 pour MobileNetV2
-            Tensor imageTensor = videoUtils.prepareImageForModel(
-                    frame, 
-                    config.getInputImageWidth(),
-                    config.getInputImageHeight(),
-                    true);  // true pour avoir des valeurs normalisées (0-1)
+            Tensor imageTensor = scope.track(pipeline.apply(frame));
+            metrics.recordPreprocessing(METRICS_MODEL, pipeline.lastTimings());
             
             // Déboguer le tensor d'entrée
             videoUtils.debugTensor(imageTensor, "Tensor d'entrée pour la classification d'activités");
             
-            // Exécution de la classification avec TensorFlow
-            Session.Runner runner = model.session().runner()
-                    .feed("serving_default_inputs", imageTensor)
-                    .fetch("StatefulPartitionedCall");
-            
-            Result result = runner.run();
+            // Exécution de la classification avec les opérations résolues au chargement
+            long runStart = System.nanoTime();
+            Result result = scope.track(inference.run(imageTensor));
+            long decodeStart = System.nanoTime();
+            metrics.record(METRICS_MODEL, Stage.SESSION_RUN, decodeStart - runStart);
             TFloat32 resultTensor = (TFloat32) result.get(0);
             
-            // Extraire les résultats du Tensor
-            int numActivities = ActivityType.values().length - 1; // -1 pour exclure ABSENT
-            float[] results = new float[numActivities];
+            // Lecture en bloc des probabilités [1, numActivities] dans un tableau réutilisé
+            int numActivities = (int) resultTensor.shape().get(1);
+            float[] results = outputReader.readFloats(resultTensor, 0);
+            decodeScores(results, 0, numActivities, scores);
+            long end = System.nanoTime();
+            metrics.record(METRICS_MODEL, Stage.DECODE, end - decodeStart);
+            metrics.record(METRICS_MODEL, Stage.TOTAL, end - start);
+            return true;
             
-            // Créer un tableau NdArray pour recevoir les données
-            // Utiliser Shape.of() au lieu de passer directement numActivities
-            FloatNdArray ndArray = NdArrays.ofFloats(Shape.of(numActivities));
-            resultTensor.copyTo(ndArray);
+        } catch (Exception e) {
+            logger.error("Erreur lors de la classification d'activités", e);
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * Classifie l'activité visible dans plusieurs images avec une seule exécution du modèle.
+     * Les images sont regroupées dans un tensor float32 [N, hauteur, largeur, 3] et la sortie
+     * [N, numActivities] est lue en une seule copie.
+     * @param frames Images à analyser
+     * @return Pour chaque image (dans le même ordre), la map des activités avec leur score de confiance
+     */
+    public List<Map<ActivityType, Double>> classifyActivities(List<Mat> frames) {
+        List<Map<ActivityType, Double>> classified = new ArrayList<>(frames.size());
+        if (frames.isEmpty()) {
+            return classified;
+        }
+        ModelSlot.Lease<PooledInference> lease = modelSlot.lease();
+        if (lease == null) {
+            logger.warn("Classification d'activités impossible : modèle non chargé");
+            frames.forEach(frame -> classified.add(new EnumMap<>(ActivityType.class)));
+            return classified;
+        }
+        
+        long start = System.nanoTime();
+        try (lease; InferenceScope scope = resourceTracker.openScope(COMPONENT)) {
+            PooledInference inference = lease.get();
             
-            // Copier les données depuis le NdArray vers le tableau de float
-            for (int i = 0; i < numActivities; i++) {
-                results[i] = ndArray.getFloat(i);
-            }
+            // Prétraitement de toutes les images dans un seul tensor batché
+            Tensor batchTensor = scope.track(pipeline.apply(frames));
+            metrics.recordPreprocessing(METRICS_MODEL, pipeline.lastTimings());
             
-            // Conversion des probabilités en map
-            Map<ActivityType, Double> result = new HashMap<>();
-            for (int i = 0; i < numActivities; i++) {
-                ActivityType activity = mapIndexToActivityType(i);
-                if (activity != ActivityType.ABSENT) { // On exclut ABSENT de la classification visuelle
-                    double probability = results[i];
-                    if (probability > config.getActivityConfidenceThreshold()) {
-                        result.put(activity, probability);
-                    }
-                }
-            }
+            long runStart = System.nanoTime();
+            Result result = scope.track(inference.run(batchTensor));
+            long decodeStart = System.nanoTime();
+            metrics.record(METRICS_MODEL, Stage.SESSION_RUN, decodeStart - runStart);
+            TFloat32 resultTensor = (TFloat32) result.get(0);
             
-            logger.debug("Activités classifiées: {}", result);
-            return result;
+            // Lecture en bloc de toutes les probabilités [N, numActivities]
+            int numActivities = (int) resultTensor.shape().get(1);
+            float[] results = outputReader.readFloats(resultTensor, 0);
+            
+            ActivityScores scores = threadScores.get();
+            double threshold = config.getActivityConfidenceThreshold();
+            for (int b = 0; b < frames.size(); b++) {
+                scores.clear();
+                decodeScores(results, b * numActivities, numActivities, scores);
+                classified.add(scores.toMap(threshold));
+            }
+            long end = System.nanoTime();
+            metrics.record(METRICS_MODEL, Stage.DECODE, end - decodeStart);
+            metrics.record(METRICS_MODEL, Stage.TOTAL, end - start);
+            logger.debug("Activités classifiées pour {} images", frames.size());
+            return classified;
             
         } catch (Exception e) {
-            logger.error("Erreur lors de la classification d'activités", e);
-            e.printStackTrace();
-            return new HashMap<>();
+            logger.error("Erreur lors de la classification d'activités par lot", e);
+            classified.clear();
+            frames.forEach(frame -> classified.add(new EnumMap<>(ActivityType.class)));
+            return classified;
+        }
+    }
+    
+    /**
+     * Répartit les probabilités d'une image sur les types d'activités.
+     * Si plusieurs sorties du modèle correspondent à la même activité, la plus haute est retenue.
+     * @param results Probabilités (éventuellement de plusieurs images)
+     * @param offset Position des probabilités de l'image dans le tableau
+     * @param numActivities Nombre de classes en sortie du modèle
+     * @param scores Scores à remplir
+     */
+    private void decodeScores(float[] results, int offset, int numActivities, ActivityScores scores) {
+        for (int i = 0; i < numActivities; i++) {
+            ActivityType activity = i < MODEL_CLASSES.length ? MODEL_CLASSES[i] : mapIndexToActivityType(i);
+            if (activity != ActivityType.ABSENT) { // On exclut ABSENT de la classification visuelle
+                float probability = results[offset + i];
+                if (probability > scores.get(activity)) {
+                    scores.set(activity, probability);
+                }
+            }
         }
     }
     
@@ -149,7 +349,7 @@ public class VisualActivityClassifier {
      * @param index Index dans le vecteur de sortie du modèle
      * @return Type d'activité correspondant
      */
-    private ActivityType mapIndexToActivityType(int index) {
+    private static ActivityType mapIndexToActivityType(int index) {
         // Mapping entre l'index de sortie du modèle et les types d'activités
         // À définir selon l'ordre des classes dans le modèle
         switch (index) {
@@ -0,0 +1,168 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Métriques de latence de l'inférence, par étape, par modèle et par flux.
+ * <p>
+ * Chaque durée est rangée dans un {@link LatencyHistogram} sans verrou : l'enregistrement depuis
+ * les threads d'analyse ne coûte que quelques opérations atomiques. Le flux courant est porté
+ * par le thread (voir {@link #enterStream(String)}) afin que les services de détection n'aient
+ * pas à connaître l'identifiant de la caméra. {@link #snapshot()} fournit un instantané immuable
+ * exploitable par un endpoint ou un export de métriques.
+ */
+@Component
+public class InferenceMetrics {
+
+    /**
+     * Étapes mesurées du traitement d'une image.
+     */
+    public enum Stage {
+        /** Redimensionnement à la taille d'entrée du modèle */
+        RESIZE,
+        /** Conversion de l'ordre des couleurs */
+        COLOR_CONVERSION,
+        /** Allocation et remplissage du tensor d'entrée (hors redimensionnement et couleurs) */
+        TENSOR_BUILD,
+        /** Exécution de la session TensorFlow */
+        SESSION_RUN,
+        /** Lecture et interprétation des sorties */
+        DECODE,
+        /** Traitement complet de l'image */
+        TOTAL
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final ConcurrentMap<String, LatencyHistogram[]> byModel = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram[]> byStream = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> currentStream = new ThreadLocal<>();
+
+    /**
+     * Associe le thread courant à un flux : les durées enregistrées ensuite sont aussi
+     * comptées pour ce flux, jusqu'à {@link #exitStream()}.
+     * @param streamId Identifiant du flux vidéo
+     */
+    public void enterStream(String streamId) {
+        currentStream.set(streamId);
+    }
+
+    /**
+     * Dissocie le thread courant de son flux.
+     */
+    public void exitStream() {
+        currentStream.remove();
+    }
+
+    /**
+     * Enregistre la durée d'une étape.
+     * @param model Nom du modèle (ex: "presence")
+     * @param stage Étape mesurée
+     * @param nanos Durée en nanosecondes
+     */
+    public void record(String model, Stage stage, long nanos) {
+        histograms(byModel, model)[stage.ordinal()].record(nanos);
+        String stream = currentStream.get();
+        if (stream != null) {
+            histograms(byStream, stream)[stage.ordinal()].record(nanos);
+        }
+    }
+
+    /**
+     * Enregistre les durées de prétraitement mesurées par le pipeline sur le thread courant.
+     * @param model Nom du modèle
+     * @param timings Durées de la dernière préparation de tensor
+     */
+    public void recordPreprocessing(String model, PreprocessingPipeline.Timings timings) {
+        record(model, Stage.RESIZE, timings.getResizeNanos());
+        record(model, Stage.COLOR_CONVERSION, timings.getColorNanos());
+        record(model, Stage.TENSOR_BUILD, timings.getTensorNanos());
+    }
+
+    /**
+     * Oublie les métriques d'un flux (ex: caméra retirée).
+     * @param streamId Identifiant du flux vidéo
+     */
+    public void removeStream(String streamId) {
+        byStream.remove(streamId);
+    }
+
+    /**
+     * Retourne un instantané de toutes les métriques.
+     * @return Statistiques par modèle et par flux
+     */
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(snapshot(byModel), snapshot(byStream));
+    }
+
+    private static LatencyHistogram[] histograms(ConcurrentMap<String, LatencyHistogram[]> map, String key) {
+        LatencyHistogram[] histograms = map.get(key);
+        if (histograms == null) {
+            histograms = map.computeIfAbsent(key, k -> {
+                LatencyHistogram[] created = new LatencyHistogram[STAGES.length];
+                for (int i = 0; i < created.length; i++) {
+                    created[i] = new LatencyHistogram();
+                }
+                return created;
+            });
+        }
+        return histograms;
+    }
+
+    private static Map<String, Map<Stage, LatencyHistogram.Snapshot>> snapshot(
+            ConcurrentMap<String, LatencyHistogram[]> map) {
+        Map<String, Map<Stage, LatencyHistogram.Snapshot>> result = new TreeMap<>();
+        map.forEach((key, histograms) -> {
+            Map<Stage, LatencyHistogram.Snapshot> stages = new EnumMap<>(Stage.class);
+            for (Stage stage : STAGES) {
+                if (histograms[stage.ordinal()].getCount() > 0) {
+                    stages.put(stage, histograms[stage.ordinal()].snapshot());
+                }
+            }
+            result.put(key, Collections.unmodifiableMap(stages));
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Instantané immuable des métriques d'inférence.
+     */
+    public static final class MetricsSnapshot {
+        private final Map<String, Map<Stage, LatencyHistogram.Snapshot>> models;
+        private final Map<String, Map<Stage, LatencyHistogram.Snapshot>> streams;
+        private final long timestamp = System.currentTimeMillis();
+
+        MetricsSnapshot(Map<String, Map<Stage, LatencyHistogram.Snapshot>> models,
+                        Map<String, Map<Stage, LatencyHistogram.Snapshot>> streams) {
+            this.models = models;
+            this.streams = streams;
+        }
+
+        /** Statistiques par modèle puis par étape */
+        public Map<String, Map<Stage, LatencyHistogram.Snapshot>> getModels() {
+            return models;
+        }
+
+        /** Statistiques par flux puis par étape (tous modèles confondus) */
+        public Map<String, Map<Stage, LatencyHistogram.Snapshot>> getStreams() {
+            return streams;
+        }
+
+        /** Date de l'instantané (ms depuis l'epoch) */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public String toString() {
+            return "MetricsSnapshot{models=" + models + ", streams=" + streams + "}";
+        }
+    }
+}
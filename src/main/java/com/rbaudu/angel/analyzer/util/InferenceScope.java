@@ -0,0 +1,73 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Portée (arena) des ressources natives créées pour le traitement d'une image.
+ * <p>
+ * Tous les tensors, résultats d'inférence et Mat enregistrés via {@link #track(AutoCloseable)}
+ * sont libérés à la fermeture de la portée, dans l'ordre inverse de leur enregistrement,
+ * sans attendre les finaliseurs du GC, et décomptés des allocations vivantes du
+ * {@link NativeResourceTracker}. Une portée n'est pas thread-safe : elle appartient
+ * au thread qui traite l'image.
+ * <pre>
+ * try (InferenceScope scope = resourceTracker.openScope("PresenceDetector")) {
+ *     Tensor input = scope.track(pipeline.apply(frame));
+ *     Result result = scope.track(runner.run());
+ *     ...
+ * }
+ * </pre>
+ */
+public class InferenceScope implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(InferenceScope.class);
+
+    private final NativeResourceTracker tracker;
+    private final String component;
+    private final List<AutoCloseable> resources = new ArrayList<>(8);
+    private boolean closed;
+
+    InferenceScope(NativeResourceTracker tracker, String component) {
+        this.tracker = tracker;
+        this.component = component;
+    }
+
+    /**
+     * Place une ressource native sous la responsabilité de cette portée.
+     * @param resource Ressource à libérer en fin de portée (Tensor, Result, Mat...)
+     * @return La ressource elle-même, pour un usage en ligne
+     */
+    public <T extends AutoCloseable> T track(T resource) {
+        if (closed) {
+            throw new IllegalStateException("Portée de ressources déjà fermée");
+        }
+        if (resource != null) {
+            resources.add(resource);
+        }
+        return resource;
+    }
+
+    /**
+     * Libère toutes les ressources enregistrées, dans l'ordre inverse de leur création.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            AutoCloseable resource = resources.get(i);
+            try {
+                resource.close();
+                tracker.released(resource);
+            } catch (Exception e) {
+                logger.warn("Erreur lors de la libération d'une ressource native ({})", component, e);
+            }
+        }
+        resources.clear();
+    }
+}
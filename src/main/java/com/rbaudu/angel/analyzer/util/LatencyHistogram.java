@@ -0,0 +1,169 @@
+package com.rbaudu.angel.analyzer.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de latences sans verrou, à buckets log-linéaires (principe des histogrammes HDR).
+ * <p>
+ * Les durées sont enregistrées en microsecondes. Chaque puissance de deux est découpée en
+ * {@value #SUB_BUCKETS} sous-intervalles égaux, soit une erreur relative bornée à environ 12 %
+ * sur toute la plage (1 µs à plusieurs heures) pour une empreinte fixe de quelques Ko.
+ * L'enregistrement se limite à un calcul d'index et à quelques incréments atomiques.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAGNITUDES = 40;
+    private static final int BUCKET_COUNT = (MAGNITUDES + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Enregistre une durée.
+     * @param nanos Durée en nanosecondes
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0L, nanos / 1_000);
+        buckets.incrementAndGet(index(micros));
+        count.increment();
+        sumMicros.add(micros);
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            // Réessayer : une autre écriture a modifié le maximum
+        }
+    }
+
+    /**
+     * Index du bucket d'une valeur : les valeurs inférieures à {@value #SUB_BUCKETS} ont leur
+     * propre bucket, les suivantes sont regroupées par puissance de deux puis par sous-intervalle.
+     */
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        if (magnitude > MAGNITUDES) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (value >>> (magnitude - 1)) - SUB_BUCKETS;
+        return magnitude * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Plus grande valeur (µs) rangée dans un bucket.
+     */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int magnitude = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (magnitude - 1)) - 1;
+    }
+
+    /**
+     * Retourne un instantané cohérent à l'échelle de chaque compteur (les enregistrements
+     * concurrents peuvent être partiellement inclus).
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        return new Snapshot(total, sumMicros.sum(), maxMicros.get(),
+                percentile(counts, total, 0.50), percentile(counts, total, 0.90),
+                percentile(counts, total, 0.99), percentile(counts, total, 0.999));
+    }
+
+    private static long percentile(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+
+    /**
+     * Nombre de durées enregistrées.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Statistiques d'un histogramme à un instant donné (durées en microsecondes).
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final long totalMicros;
+        private final long maxMicros;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+
+        Snapshot(long count, long totalMicros, long maxMicros, long p50, long p90, long p99, long p999) {
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /** Temps cumulé (µs) */
+        public long getTotalMicros() {
+            return totalMicros;
+        }
+
+        public double getMeanMicros() {
+            return count == 0 ? 0.0 : (double) totalMicros / count;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+
+        public long getP50Micros() {
+            return p50;
+        }
+
+        public long getP90Micros() {
+            return p90;
+        }
+
+        public long getP99Micros() {
+            return p99;
+        }
+
+        public long getP999Micros() {
+            return p999;
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count + ", mean=" + Math.round(getMeanMicros()) + "µs, p50=" + p50
+                    + "µs, p99=" + p99 + "µs, max=" + maxMicros + "µs}";
+        }
+    }
+}
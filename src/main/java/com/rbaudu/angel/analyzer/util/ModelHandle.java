@@ -0,0 +1,157 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.tensorflow.SavedModelBundle;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Modèle partagé par le {@link ModelRegistry}, avec comptage de références.
+ * <p>
+ * Chaque référence obtenue par {@link ModelRegistry#acquire(String)} ou {@link #retain()} doit
+ * être rendue par {@link #close()} ; le modèle natif est fermé lorsque la dernière référence
+ * est rendue.
+ */
+public final class ModelHandle implements AutoCloseable {
+
+    private final ModelRegistry registry;
+    private final String path;
+    private final long version;
+    private final int replica;
+    private final SavedModelBundle bundle;
+    private final long estimatedSizeBytes;
+    private final long loadTimeMs;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final List<Runnable> closeListeners = new CopyOnWriteArrayList<>();
+
+    ModelHandle(ModelRegistry registry, String path, long version, int replica, SavedModelBundle bundle,
+                long estimatedSizeBytes, long loadTimeMs) {
+        this.registry = registry;
+        this.path = path;
+        this.version = version;
+        this.replica = replica;
+        this.bundle = bundle;
+        this.estimatedSizeBytes = estimatedSizeBytes;
+        this.loadTimeMs = loadTimeMs;
+    }
+
+    /**
+     * Modèle chargé. Ne pas fermer directement : rendre la référence avec {@link #close()}.
+     */
+    public SavedModelBundle bundle() {
+        return bundle;
+    }
+
+    /**
+     * Prend une référence supplémentaire sur le modèle (ex: pour une inférence en cours).
+     * @return Cette instance, à fermer une fois de plus
+     * @throws IllegalStateException si le modèle a déjà été fermé
+     */
+    public ModelHandle retain() {
+        if (!tryRetain()) {
+            throw new IllegalStateException("Modèle déjà fermé: " + path);
+        }
+        return this;
+    }
+
+    /**
+     * Prend une référence supplémentaire si le modèle n'est pas encore fermé.
+     */
+    boolean tryRetain() {
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * Rend une référence ; le modèle est fermé avec la dernière.
+     */
+    @Override
+    public void close() {
+        int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            registry.evict(this);
+        } else if (remaining < 0) {
+            references.incrementAndGet();
+            throw new IllegalStateException("Référence rendue en trop pour le modèle " + path);
+        }
+    }
+
+    /**
+     * Chemin absolu du répertoire SavedModel.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Version du modèle (date de modification de {@code saved_model.pb}, en millisecondes).
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Numéro de réplique (0 pour le modèle partagé).
+     */
+    public int getReplica() {
+        return replica;
+    }
+
+    /**
+     * Nombre de références vivantes.
+     */
+    public int getReferenceCount() {
+        return Math.max(0, references.get());
+    }
+
+    /**
+     * Taille estimée du modèle en mémoire native, en octets : taille sur disque du graphe et des
+     * variables. L'allocation réelle de TensorFlow (buffers de la session, noyaux, caches) n'est
+     * pas mesurée et peut être sensiblement plus élevée.
+     */
+    public long getEstimatedSizeBytes() {
+        return estimatedSizeBytes;
+    }
+
+    /**
+     * Durée du chargement du modèle (ms).
+     */
+    public long getLoadTimeMs() {
+        return loadTimeMs;
+    }
+
+    /**
+     * Enregistre une action exécutée à la fermeture du modèle (ex: libération de ressources
+     * associées comme des répliques).
+     */
+    public void onClose(Runnable listener) {
+        closeListeners.add(listener);
+    }
+
+    boolean closeBundle() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            bundle.close();
+        } finally {
+            closeListeners.forEach(Runnable::run);
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "ModelHandle{path=" + path + ", version=" + version + ", replica=" + replica
+                + ", references=" + getReferenceCount() + ", estimatedSizeBytes=" + estimatedSizeBytes + "}";
+    }
+}
@@ -1,13 +1,19 @@
 package com.rbaudu.angel.analyzer.util;
 
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import com.rbaudu.angel.analyzer.config.InferenceConfig.SessionSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.tensorflow.SavedModelBundle;
 import org.tensorflow.TensorFlow;
+import org.tensorflow.proto.framework.ConfigProto;
+import org.tensorflow.proto.framework.GraphOptions;
+import org.tensorflow.proto.framework.OptimizerOptions;
 
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Locale;
 import org.tensorflow.Signature;
 
 /**
@@ -17,6 +23,16 @@ import org.tensorflow.Signature;
 public class ModelLoader {
     private static final Logger logger = LoggerFactory.getLogger(ModelLoader.class);
     
+    private final InferenceConfig inferenceConfig;
+    
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param inferenceConfig Configuration du moteur d'inférence (réglages de session par modèle)
+     */
+    public ModelLoader(InferenceConfig inferenceConfig) {
+        this.inferenceConfig = inferenceConfig;
+    }
+    
     /**
      * Charge un modèle TensorFlow à partir d'un chemin de fichier.
      * @param modelPath Chemin vers le répertoire du modèle SavedModel
@@ -30,8 +46,18 @@ public class ModelLoader {
             // Afficher la version de TensorFlow pour débogage
             logger.info("Version de TensorFlow: {}", TensorFlow.version());
             
-            // Charger le modèle avec la nouvelle API
-            SavedModelBundle model = SavedModelBundle.load(modelPath, "serve");
+            // Charger le modèle avec les réglages de session propres à ce modèle
+            SessionSettings settings = inferenceConfig.getSessionSettings(modelPath);
+            logger.info("Réglages de session: {}", settings);
+            if (settings.hasExplicitThreads() && !settings.isPerSessionThreads()) {
+                logger.warn("Threads de session ({} intra-op, {} inter-op) probablement ignorés pour {} : sans "
+                        + "per-session-threads, les pools globaux sont dimensionnés par la première session créée",
+                        settings.getIntraOpThreads(), settings.getInterOpThreads(), modelPath);
+            }
+            SavedModelBundle model = SavedModelBundle.loader(modelPath)
+                    .withTags("serve")
+                    .withConfigProto(buildConfigProto(settings))
+                    .load();
             
             // Lister les signatures disponibles pour le débogage
             List<Signature> signatures = model.signatures();
@@ -50,6 +76,33 @@ public class ModelLoader {
         }
     }
     
+    /**
+     * Construit la configuration de session TensorFlow à partir des réglages d'un modèle.
+     * Les nombres de threads à 0 laissent TensorFlow choisir (nombre de cœurs). Les pools de
+     * threads globaux étant partagés entre toutes les sessions du processus (et dimensionnés par
+     * la première), un budget de threads propre à chaque modèle nécessite {@code perSessionThreads},
+     * activé par défaut dès qu'un nombre de threads est fixé.
+     * @param settings Réglages de session
+     * @return Configuration de session
+     */
+    static ConfigProto buildConfigProto(SessionSettings settings) {
+        OptimizerOptions.Level level = "L0".equals(settings.getOptimizerLevel().trim().toUpperCase(Locale.ROOT))
+                ? OptimizerOptions.Level.L0
+                : OptimizerOptions.Level.L1;
+        OptimizerOptions optimizer = OptimizerOptions.newBuilder()
+                .setOptLevel(level)
+                .setGlobalJitLevel(settings.isJit() ? OptimizerOptions.GlobalJitLevel.ON_1 : OptimizerOptions.GlobalJitLevel.OFF)
+                .build();
+        
+        return ConfigProto.newBuilder()
+                .setIntraOpParallelismThreads(Math.max(0, settings.getIntraOpThreads()))
+                .setInterOpParallelismThreads(Math.max(0, settings.getInterOpThreads()))
+                .setUsePerSessionThreads(settings.isPerSessionThreads())
+                .setAllowSoftPlacement(true)
+                .setGraphOptions(GraphOptions.newBuilder().setOptimizerOptions(optimizer))
+                .build();
+    }
+    
     /**
      * Vérifie si un modèle existe à l'emplacement spécifié.
      * @param modelPath Chemin vers le répertoire du modèle
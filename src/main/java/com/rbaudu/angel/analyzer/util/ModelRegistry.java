@@ -0,0 +1,193 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.tensorflow.SavedModelBundle;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Registre des modèles TensorFlow chargés, partagés entre services.
+ * <p>
+ * Les modèles sont indexés par chemin absolu et par version (date de modification de
+ * {@code saved_model.pb}) : deux services qui pointent vers le même modèle partagent un seul
+ * {@link SavedModelBundle} en mémoire native. Chaque {@link ModelHandle} compte ses références
+ * et le modèle est fermé dès qu'il n'est plus utilisé.
+ */
+@Component
+public class ModelRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(ModelRegistry.class);
+
+    private final ModelLoader modelLoader;
+    private final Map<String, ModelHandle> models = new ConcurrentHashMap<>();
+    private final Map<String, Object> loadLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param modelLoader Chargeur de modèle TensorFlow
+     */
+    public ModelRegistry(ModelLoader modelLoader) {
+        this.modelLoader = modelLoader;
+    }
+
+    /**
+     * Retourne une référence sur la version courante d'un modèle, en le chargeant si nécessaire.
+     * Des modèles différents peuvent être chargés en parallèle.
+     * @param modelPath Chemin vers le répertoire du modèle SavedModel
+     * @return Référence à rendre par {@link ModelHandle#close()}
+     * @throws Exception En cas d'erreur lors du chargement
+     */
+    public ModelHandle acquire(String modelPath) throws Exception {
+        String path = normalize(modelPath);
+        return acquireReplica(path, version(path), 0);
+    }
+
+    /**
+     * Retourne une référence sur une réplique d'un modèle : chaque réplique est un
+     * {@link SavedModelBundle} distinct, avec sa propre session. La réplique 0 est le modèle
+     * partagé retourné par {@link #acquire(String)}.
+     * <p>
+     * La version est celle du modèle principal ({@link ModelHandle#getVersion()}) et n'est pas
+     * relue sur disque : toutes les répliques d'un pool sont indexées sous la même version, même
+     * si le fichier a changé entre-temps (la nouvelle version remplacera alors tout le pool).
+     * @param modelPath Chemin vers le répertoire du modèle SavedModel
+     * @param version Version du modèle principal
+     * @param replica Numéro de la réplique
+     * @return Référence à rendre par {@link ModelHandle#close()}
+     * @throws Exception En cas d'erreur lors du chargement
+     */
+    public ModelHandle acquireReplica(String modelPath, long version, int replica) throws Exception {
+        String path = normalize(modelPath);
+        String key = key(path, version, replica);
+
+        ModelHandle handle = models.get(key);
+        if (handle != null && handle.tryRetain()) {
+            return handle;
+        }
+        while (true) {
+            Object lock = loadLocks.computeIfAbsent(key, k -> new Object());
+            synchronized (lock) {
+                if (loadLocks.get(key) != lock) {
+                    continue; // Verrou retiré pendant l'attente : reprendre avec le verrou courant
+                }
+                try {
+                    handle = models.get(key);
+                    if (handle != null && handle.tryRetain()) {
+                        return handle;
+                    }
+                    long start = System.nanoTime();
+                    SavedModelBundle bundle = modelLoader.loadModel(path);
+                    long loadTimeMs = (System.nanoTime() - start) / 1_000_000;
+                    handle = new ModelHandle(this, path, version, replica, bundle, sizeOnDisk(path), loadTimeMs);
+                    models.put(key, handle);
+                    logger.info("Modèle {} (version {}, réplique {}) enregistré : environ {} Mo, chargé en {} ms",
+                            path, version, replica, handle.getEstimatedSizeBytes() / (1024 * 1024), loadTimeMs);
+                    return handle;
+                } finally {
+                    // Le verrou ne sert qu'au chargement : il est retiré pour que les versions
+                    // successives d'un modèle ne s'accumulent pas dans la table
+                    loadLocks.remove(key, lock);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retire et ferme un modèle dont la dernière référence a été rendue.
+     */
+    void evict(ModelHandle handle) {
+        models.remove(key(handle.getPath(), handle.getVersion(), handle.getReplica()), handle);
+        try {
+            if (handle.closeBundle()) {
+                logger.info("Modèle {} (version {}) fermé", handle.getPath(), handle.getVersion());
+            }
+        } catch (Exception e) {
+            logger.warn("Erreur lors de la fermeture du modèle {}", handle.getPath(), e);
+        }
+    }
+
+    private static String normalize(String modelPath) {
+        return Paths.get(modelPath).toAbsolutePath().normalize().toString();
+    }
+
+    private static String key(String path, long version, int replica) {
+        return replica == 0 ? path + "@" + version : path + "@" + version + "#" + replica;
+    }
+
+    /**
+     * Retourne la version courante d'un modèle sur disque.
+     * @param modelPath Chemin vers le répertoire du modèle SavedModel
+     * @return Date de modification de {@code saved_model.pb} (ms), ou 0 si le fichier est absent
+     */
+    public long version(String modelPath) {
+        try {
+            Path graph = Paths.get(modelPath, "saved_model.pb");
+            return Files.exists(graph) ? Files.getLastModifiedTime(graph).toMillis() : 0L;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Retourne les modèles actuellement chargés.
+     * @return Instantané des modèles, triés par chemin, version puis réplique
+     */
+    public List<ModelHandle> getModels() {
+        List<ModelHandle> snapshot = new ArrayList<>(models.values());
+        snapshot.sort(Comparator.comparing(ModelHandle::getPath).thenComparingLong(ModelHandle::getVersion)
+                .thenComparingInt(ModelHandle::getReplica));
+        return snapshot;
+    }
+
+    /**
+     * Mémoire native estimée de tous les modèles chargés, en octets
+     * (voir {@link ModelHandle#getEstimatedSizeBytes()}).
+     */
+    public long getTotalEstimatedSizeBytes() {
+        return models.values().stream().mapToLong(ModelHandle::getEstimatedSizeBytes).sum();
+    }
+
+    /**
+     * Ferme les modèles encore chargés à l'arrêt de l'application.
+     */
+    @PreDestroy
+    public void close() {
+        for (ModelHandle handle : getModels()) {
+            if (handle.getReferenceCount() > 0) {
+                logger.info("Fermeture du modèle {} encore référencé ({} références)",
+                        handle.getPath(), handle.getReferenceCount());
+            }
+            evict(handle);
+        }
+    }
+
+    /**
+     * Taille du graphe et des variables, chargés tels quels en mémoire native.
+     */
+    private static long sizeOnDisk(String path) {
+        try (Stream<Path> files = Files.walk(Paths.get(path))) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    return 0L;
+                }
+            }).sum();
+        } catch (IOException e) {
+            logger.debug("Taille du modèle {} indisponible", path, e);
+            return 0L;
+        }
+    }
+}
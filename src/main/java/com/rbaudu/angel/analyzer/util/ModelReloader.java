@@ -0,0 +1,140 @@
+package com.rbaudu.angel.analyzer.util;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Rechargement à chaud des modèles, sans redémarrage ni perte d'images.
+ * <p>
+ * Un thread de surveillance vérifie périodiquement le répertoire SavedModel de chaque
+ * emplacement enregistré (chemin configuré et version de {@code saved_model.pb}). Lorsqu'un
+ * changement est constaté et reste stable entre deux vérifications (copie terminée), le
+ * nouveau modèle est chargé et préchauffé en arrière-plan, puis mis en service par
+ * {@link ModelSlot#load(ModelHandle)} ; les images continuent d'être traitées par l'ancien
+ * modèle pendant toute la durée du chargement.
+ */
+@Component
+public class ModelReloader {
+    private static final Logger logger = LoggerFactory.getLogger(ModelReloader.class);
+
+    private final ModelLoader modelLoader;
+    private final ModelRegistry modelRegistry;
+    private final long intervalMs;
+    private final List<WatchedModel> watched = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService watcher;
+
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param modelLoader Chargeur de modèle TensorFlow
+     * @param modelRegistry Registre des modèles partagés
+     * @param config Configuration du moteur d'inférence
+     */
+    public ModelReloader(ModelLoader modelLoader, ModelRegistry modelRegistry, InferenceConfig config) {
+        this.modelLoader = modelLoader;
+        this.modelRegistry = modelRegistry;
+        this.intervalMs = config.getModelReloadIntervalMs();
+    }
+
+    /**
+     * Place un emplacement sous surveillance.
+     * @param slot Emplacement à mettre à jour
+     * @param modelPath Chemin configuré du modèle, relu à chaque vérification
+     */
+    public void watch(ModelSlot<?> slot, Supplier<String> modelPath) {
+        if (intervalMs <= 0) {
+            return;
+        }
+        watched.add(new WatchedModel(slot, modelPath));
+        synchronized (this) {
+            if (watcher == null) {
+                watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "model-reloader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                watcher.scheduleWithFixedDelay(this::checkAll, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+                logger.info("Surveillance des modèles activée (toutes les {} ms)", intervalMs);
+            }
+        }
+    }
+
+    /**
+     * Vérifie immédiatement tous les emplacements surveillés.
+     */
+    public void checkAll() {
+        for (WatchedModel model : watched) {
+            try {
+                check(model);
+            } catch (Exception e) {
+                logger.error("Échec du rechargement du modèle {}", model.slot.getName(), e);
+            }
+        }
+    }
+
+    private void check(WatchedModel model) throws Exception {
+        String configured = model.modelPath.get();
+        if (configured == null || configured.isEmpty() || !modelLoader.modelExists(configured)) {
+            return;
+        }
+        String path = Paths.get(configured).toAbsolutePath().normalize().toString();
+        long version = modelRegistry.version(path);
+
+        ModelHandle current = model.slot.getHandle();
+        if (current != null && current.getPath().equals(path) && current.getVersion() == version) {
+            model.pendingPath = null;
+            return;
+        }
+        // Attendre une seconde vérification identique : le modèle est peut-être en cours de copie
+        if (!Objects.equals(path, model.pendingPath) || version != model.pendingVersion) {
+            model.pendingPath = path;
+            model.pendingVersion = version;
+            logger.info("Nouvelle version détectée pour le modèle {} : {} (version {})",
+                    model.slot.getName(), path, version);
+            return;
+        }
+
+        model.pendingPath = null;
+        long start = System.nanoTime();
+        model.slot.load(modelRegistry.acquire(path));
+        logger.info("Modèle {} rechargé à chaud en {} ms", model.slot.getName(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Arrête la surveillance.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Emplacement surveillé et dernière version vue en attente de stabilisation.
+     */
+    private static final class WatchedModel {
+        final ModelSlot<?> slot;
+        final Supplier<String> modelPath;
+        String pendingPath;
+        long pendingVersion;
+
+        WatchedModel(ModelSlot<?> slot, Supplier<String> modelPath) {
+            this.slot = slot;
+            this.modelPath = modelPath;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Emplacement d'un modèle remplaçable à chaud.
+ * <p>
+ * L'emplacement associe un {@link ModelHandle} à l'état préparé du service (ex: un
+ * {@link PreparedInference}). Chaque inférence emprunte le modèle courant par {@link #lease()} :
+ * lors d'un remplacement, les inférences en cours terminent sur l'ancien modèle, qui n'est
+ * fermé qu'une fois le dernier emprunt rendu. Le basculement lui-même est atomique.
+ *
+ * @param <T> État préparé à partir du modèle
+ */
+public class ModelSlot<T> {
+    private static final Logger logger = LoggerFactory.getLogger(ModelSlot.class);
+
+    private final String name;
+    private final Function<ModelHandle, T> preparer;
+    private final Consumer<T> warmUp;
+    private final int warmUpIterations;
+    private volatile Lease<T> current;
+    private volatile long warmUpTimeMs;
+
+    /**
+     * @param name Nom de l'emplacement (pour les logs)
+     * @param preparer Préparation de l'état du service à partir du modèle chargé (exceptions non vérifiées)
+     * @param warmUp Inférence de préchauffage, aux dimensions d'entrée réelles, ou null
+     * @param warmUpIterations Nombre d'inférences de préchauffage avant la mise en service
+     */
+    public ModelSlot(String name, Function<ModelHandle, T> preparer, Consumer<T> warmUp, int warmUpIterations) {
+        this.name = name;
+        this.preparer = preparer;
+        this.warmUp = warmUp;
+        this.warmUpIterations = warmUp == null ? 0 : Math.max(0, warmUpIterations);
+    }
+
+    /**
+     * Prépare et préchauffe un modèle puis le met en service à la place du modèle courant.
+     * L'emplacement devient propriétaire de la référence ; elle est rendue en cas d'échec.
+     * @param handle Référence sur le nouveau modèle
+     * @throws RuntimeException si la préparation ou le préchauffage échoue (le modèle courant est conservé)
+     */
+    public void load(ModelHandle handle) {
+        T value;
+        try {
+            value = preparer.apply(handle);
+            // La première inférence initialise le graphe et les noyaux ; les suivantes stabilisent les allocations
+            long start = System.nanoTime();
+            for (int i = 0; i < warmUpIterations; i++) {
+                warmUp.accept(value);
+            }
+            warmUpTimeMs = (System.nanoTime() - start) / 1_000_000;
+        } catch (RuntimeException e) {
+            handle.close();
+            throw e;
+        }
+        Lease<T> previous;
+        synchronized (this) {
+            previous = current;
+            current = new Lease<>(handle, value);
+        }
+        logger.info("Modèle {} en service : {} (version {}, {} préchauffage(s) en {} ms)",
+                name, handle.getPath(), handle.getVersion(), warmUpIterations, warmUpTimeMs);
+        if (previous != null) {
+            // L'ancien modèle est fermé lorsque les inférences en cours l'ont rendu
+            previous.handle.close();
+        }
+    }
+
+    /**
+     * Emprunte le modèle courant pour une inférence.
+     * @return Emprunt à fermer en fin d'inférence (try-with-resources), ou null si aucun modèle n'est chargé
+     */
+    public Lease<T> lease() {
+        while (true) {
+            Lease<T> lease = current;
+            if (lease == null) {
+                return null;
+            }
+            if (lease.handle.tryRetain()) {
+                return lease;
+            }
+            // Modèle remplacé et fermé entre la lecture et l'emprunt : relire le modèle courant
+            if (lease == current) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Indique si un modèle est en service.
+     */
+    public boolean isLoaded() {
+        return current != null;
+    }
+
+    /**
+     * Modèle en service, ou null. Pour inspection uniquement : utiliser {@link #lease()} pour une inférence.
+     */
+    public ModelHandle getHandle() {
+        Lease<T> lease = current;
+        return lease == null ? null : lease.handle;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Durée du préchauffage du dernier modèle mis en service (ms).
+     */
+    public long getWarmUpTimeMs() {
+        return warmUpTimeMs;
+    }
+
+    /**
+     * Retire le modèle courant ; il est fermé lorsque les inférences en cours l'ont rendu.
+     */
+    public void close() {
+        Lease<T> previous;
+        synchronized (this) {
+            previous = current;
+            current = null;
+        }
+        if (previous != null) {
+            previous.handle.close();
+        }
+    }
+
+    /**
+     * Emprunt d'un modèle en service. Une même instance est partagée par tous les emprunts
+     * d'une même version : fermer l'emprunt rend simplement la référence prise par {@link #lease()}.
+     */
+    public static final class Lease<T> implements AutoCloseable {
+        private final ModelHandle handle;
+        private final T value;
+
+        Lease(ModelHandle handle, T value) {
+            this.handle = handle;
+            this.value = value;
+        }
+
+        /**
+         * État préparé du modèle emprunté.
+         */
+        public T get() {
+            return value;
+        }
+
+        public ModelHandle getHandle() {
+            return handle;
+        }
+
+        @Override
+        public void close() {
+            handle.close();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.rbaudu.angel.analyzer.util;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Chargement parallèle et préchauffage des modèles au démarrage.
+ * <p>
+ * Les services enregistrent leurs emplacements de modèle pendant leur initialisation ; une fois
+ * tous les beans créés, les modèles sont chargés en parallèle puis préchauffés (plusieurs
+ * inférences aux dimensions d'entrée réelles). Le démarrage du contexte Spring attend la fin de
+ * cette phase : l'application ne se déclare prête qu'avec des modèles chauds, et la première
+ * image réelle ne paie plus l'initialisation du graphe.
+ * <p>
+ * Si les chargements dépassent {@code startup-timeout-ms}, le démarrage se poursuit mais
+ * l'application reste non prête : l'état de disponibilité est maintenu à
+ * {@link ReadinessState#REFUSING_TRAFFIC} jusqu'à la fin de tous les chargements.
+ */
+@Component
+public class ModelStartup implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(ModelStartup.class);
+
+    private final ModelRegistry modelRegistry;
+    private final ApplicationEventPublisher events;
+    private final long timeoutMs;
+    private final List<Registration> registrations = new ArrayList<>();
+    private final Map<String, ModelStats> stats = new LinkedHashMap<>();
+    private volatile boolean ready;
+    private boolean refusing;
+    private volatile long startupTimeMs;
+
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param modelRegistry Registre des modèles partagés
+     * @param events Publication des changements d'état de disponibilité
+     * @param config Configuration du moteur d'inférence
+     */
+    public ModelStartup(ModelRegistry modelRegistry, ApplicationEventPublisher events, InferenceConfig config) {
+        this.modelRegistry = modelRegistry;
+        this.events = events;
+        this.timeoutMs = config.getStartupTimeoutMs();
+    }
+
+    /**
+     * Programme le chargement d'un modèle pour la phase de démarrage.
+     * @param slot Emplacement à remplir
+     * @param modelPath Chemin configuré du modèle
+     */
+    public synchronized void register(ModelSlot<?> slot, Supplier<String> modelPath) {
+        registrations.add(new Registration(slot, modelPath));
+    }
+
+    /**
+     * Charge et préchauffe tous les modèles enregistrés, en parallèle.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<Registration> toLoad;
+        synchronized (this) {
+            toLoad = new ArrayList<>(registrations);
+        }
+        long start = System.nanoTime();
+        if (!toLoad.isEmpty()) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            ExecutorService loaders = Executors.newFixedThreadPool(toLoad.size(), runnable -> {
+                Thread thread = new Thread(runnable, "model-startup-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            CompletableFuture<Void> all = CompletableFuture.allOf(toLoad.stream()
+                    .map(registration -> CompletableFuture.runAsync(() -> load(registration), loaders))
+                    .toArray(CompletableFuture[]::new));
+            try {
+                all.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                logger.error("Chargement des modèles non terminé après {} ms : l'application refuse le trafic "
+                        + "jusqu'à la fin des chargements", timeoutMs);
+                all.whenComplete((result, error) -> markReady(start));
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                all.whenComplete((result, error) -> markReady(start));
+                return;
+            } catch (Exception e) {
+                logger.error("Erreur lors du chargement des modèles au démarrage", e);
+            } finally {
+                loaders.shutdown();
+            }
+        }
+        markReady(start);
+    }
+
+    /**
+     * Déclare la phase de chargement terminée. Si Spring a déjà déclaré l'application prête
+     * (chargements plus longs que le délai de démarrage), le trafic est de nouveau accepté.
+     */
+    private synchronized void markReady(long start) {
+        startupTimeMs = (System.nanoTime() - start) / 1_000_000;
+        ready = true;
+        logger.info("Modèles prêts en {} ms : {}", startupTimeMs, getModelStats());
+        if (refusing) {
+            refusing = false;
+            AvailabilityChangeEvent.publish(events, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    /**
+     * Maintient l'application hors trafic tant que des modèles sont en cours de chargement :
+     * Spring Boot la déclare prête à la fin du démarrage, même si le délai a été dépassé.
+     */
+    @EventListener
+    public synchronized void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && !ready) {
+            refusing = true;
+            AvailabilityChangeEvent.publish(events, this, ReadinessState.REFUSING_TRAFFIC);
+        }
+    }
+
+    private void load(Registration registration) {
+        ModelSlot<?> slot = registration.slot;
+        String modelPath = registration.modelPath.get();
+        if (modelPath == null || modelPath.isEmpty()) {
+            logger.warn("Aucun modèle configuré pour {}", slot.getName());
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            ModelHandle handle = modelRegistry.acquire(modelPath);
+            long loadTimeMs = (System.nanoTime() - start) / 1_000_000;
+            slot.load(handle);
+            synchronized (stats) {
+                stats.put(slot.getName(), new ModelStats(loadTimeMs, slot.getWarmUpTimeMs()));
+            }
+        } catch (Exception e) {
+            logger.error("Erreur lors du chargement du modèle {} depuis {}", slot.getName(), modelPath, e);
+        }
+    }
+
+    /**
+     * Indique si la phase de chargement des modèles est terminée (y compris après dépassement
+     * du délai de démarrage).
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Durée totale de la phase de démarrage (ms).
+     */
+    public long getStartupTimeMs() {
+        return startupTimeMs;
+    }
+
+    /**
+     * Durées de chargement et de préchauffage de chaque modèle chargé au démarrage.
+     * @return Instantané par nom d'emplacement
+     */
+    public Map<String, ModelStats> getModelStats() {
+        synchronized (stats) {
+            return new LinkedHashMap<>(stats);
+        }
+    }
+
+    /**
+     * Durées de démarrage d'un modèle.
+     */
+    public static final class ModelStats {
+        private final long loadTimeMs;
+        private final long warmUpTimeMs;
+
+        ModelStats(long loadTimeMs, long warmUpTimeMs) {
+            this.loadTimeMs = loadTimeMs;
+            this.warmUpTimeMs = warmUpTimeMs;
+        }
+
+        /** Durée de chargement du SavedModel (ms) */
+        public long getLoadTimeMs() {
+            return loadTimeMs;
+        }
+
+        /** Durée des inférences de préchauffage (ms) */
+        public long getWarmUpTimeMs() {
+            return warmUpTimeMs;
+        }
+
+        @Override
+        public String toString() {
+            return "ModelStats{loadTimeMs=" + loadTimeMs + ", warmUpTimeMs=" + warmUpTimeMs + "}";
+        }
+    }
+
+    private static final class Registration {
+        final ModelSlot<?> slot;
+        final Supplier<String> modelPath;
+
+        Registration(ModelSlot<?> slot, Supplier<String> modelPath) {
+            this.slot = slot;
+            this.modelPath = modelPath;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.rbaudu.angel.analyzer.util;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Suivi des ressources natives (tensors, résultats d'inférence, Mat OpenCV) utilisées
+ * sur le chemin d'inférence.
+ * <p>
+ * Fournit les {@link InferenceScope} qui libèrent de façon déterministe les ressources
+ * créées pour une image. En mode détection de fuites, chaque ressource est comptée là où elle
+ * est allouée ({@link #allocated(String, AutoCloseable)} : pipeline de prétraitement, pool
+ * d'inférence...) et décomptée lorsqu'une portée la libère. Une ressource qui échappe à toute
+ * portée reste donc comptée : une valeur qui croît sans redescendre signale une fuite. Dans ce
+ * mode de diagnostic, les ressources vivantes sont référencées jusqu'à leur libération.
+ */
+@Component
+public class NativeResourceTracker {
+    private static final Logger logger = LoggerFactory.getLogger(NativeResourceTracker.class);
+
+    private final boolean enabled;
+    private final Map<Object, String> liveAllocations = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param config Configuration du moteur d'inférence
+     */
+    public NativeResourceTracker(InferenceConfig config) {
+        this.enabled = config.isLeakDetection();
+        if (enabled) {
+            logger.info("Détection des fuites de ressources natives activée");
+        }
+    }
+
+    /**
+     * Ouvre une portée de ressources pour le traitement d'une image.
+     * @param component Nom du composant propriétaire (pour le comptage)
+     * @return Portée à fermer en fin de traitement (try-with-resources)
+     */
+    public InferenceScope openScope(String component) {
+        return new InferenceScope(this, component);
+    }
+
+    /**
+     * Signale l'allocation d'une ressource native, à l'endroit où elle est créée.
+     * @param component Nom du composant propriétaire
+     * @param resource Ressource allouée
+     * @return La ressource elle-même, pour un usage en ligne
+     */
+    public <T extends AutoCloseable> T allocated(String component, T resource) {
+        if (enabled && resource != null) {
+            liveAllocations.put(resource, component);
+        }
+        return resource;
+    }
+
+    /**
+     * Signale la libération d'une ressource ; sans effet si elle n'a pas été comptée.
+     * @param resource Ressource libérée
+     */
+    public void released(Object resource) {
+        if (enabled && resource != null) {
+            liveAllocations.remove(resource);
+        }
+    }
+
+    /**
+     * Retourne le nombre d'allocations natives vivantes par composant.
+     * @return Instantané des compteurs (vide si la détection de fuites est désactivée)
+     */
+    public Map<String, Long> getLiveAllocations() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        synchronized (liveAllocations) {
+            liveAllocations.values().forEach(component -> snapshot.merge(component, 1L, Long::sum));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Indique si la détection de fuites est active.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -0,0 +1,230 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.tensorflow.Result;
+import org.tensorflow.SavedModelBundle;
+import org.tensorflow.Tensor;
+import org.tensorflow.ndarray.Shape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Pool de répliques d'un même modèle, chacune avec sa propre session TensorFlow.
+ * <p>
+ * Avec une seule session, les appels concurrents se partagent ses pools de threads internes ;
+ * avec K répliques (chargées avec le budget de threads de leur {@code SessionSettings}), K
+ * inférences s'exécutent réellement en parallèle. Chaque appel à {@link #run(Tensor)} emprunte
+ * une réplique libre par compare-and-set, sans verrou ; si toutes sont occupées, l'appel
+ * partage une réplique plutôt que d'attendre. L'utilisation du pool est mesurée en continu.
+ */
+public class PooledInference {
+
+    private final PreparedInference[] replicas;
+    private final AtomicIntegerArray inFlight;
+    private final LongAdder[] busyNanos;
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final long createdNanos = System.nanoTime();
+    private NativeResourceTracker tracker;
+    private String component;
+
+    private PooledInference(PreparedInference[] replicas) {
+        this.replicas = replicas;
+        this.inFlight = new AtomicIntegerArray(replicas.length);
+        this.busyNanos = new LongAdder[replicas.length];
+        for (int i = 0; i < replicas.length; i++) {
+            busyNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Prépare un pool de répliques à partir d'un modèle déjà chargé. Les répliques
+     * supplémentaires sont chargées par le registre, sous la version du modèle principal, et
+     * fermées avec celui-ci.
+     * @param registry Registre des modèles
+     * @param primary Modèle principal (première réplique)
+     * @param size Nombre de répliques (au moins 1)
+     * @param preparer Préparation de l'appel d'inférence sur un modèle chargé
+     * @return Pool prêt à l'emploi
+     * @throws Exception En cas d'erreur lors du chargement d'une réplique
+     */
+    public static PooledInference prepare(ModelRegistry registry, ModelHandle primary, int size,
+                                          Function<SavedModelBundle, PreparedInference> preparer) throws Exception {
+        int count = Math.max(1, size);
+        PreparedInference[] replicas = new PreparedInference[count];
+        replicas[0] = preparer.apply(primary.bundle());
+        List<ModelHandle> extra = new ArrayList<>(count - 1);
+        try {
+            for (int i = 1; i < count; i++) {
+                ModelHandle replica = registry.acquireReplica(primary.getPath(), primary.getVersion(), i);
+                extra.add(replica);
+                replicas[i] = preparer.apply(replica.bundle());
+            }
+        } catch (Exception e) {
+            extra.forEach(ModelHandle::close);
+            throw e;
+        }
+        if (!extra.isEmpty()) {
+            primary.onClose(() -> extra.forEach(ModelHandle::close));
+        }
+        return new PooledInference(replicas);
+    }
+
+    /**
+     * Compte chaque résultat produit par le pool comme allocation native du composant
+     * (détection de fuites). À appeler avant la mise en service du pool.
+     * @param tracker Suivi des ressources natives
+     * @param component Nom du composant propriétaire des résultats
+     * @return Ce pool
+     */
+    public PooledInference tracked(NativeResourceTracker tracker, String component) {
+        this.tracker = tracker;
+        this.component = component;
+        return this;
+    }
+
+    /**
+     * Exécute l'inférence sur une réplique libre.
+     * @param inputTensor Tensor d'entrée
+     * @return Résultat (à fermer par l'appelant), indépendant de la réplique utilisée
+     */
+    public Result run(Tensor inputTensor) {
+        int replica = acquire();
+        long start = System.nanoTime();
+        try {
+            Result result = replicas[replica].run(inputTensor);
+            return tracker != null ? tracker.allocated(component, result) : result;
+        } finally {
+            busyNanos[replica].add(System.nanoTime() - start);
+            inFlight.decrementAndGet(replica);
+            runs.increment();
+        }
+    }
+
+    /**
+     * Emprunte la première réplique libre à partir d'une position tournante ; si toutes sont
+     * occupées, la réplique de départ est partagée (les sessions TensorFlow sont thread-safe).
+     */
+    private int acquire() {
+        int size = replicas.length;
+        int start = size == 1 ? 0 : Math.floorMod(cursor.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            int index = start + i < size ? start + i : start + i - size;
+            if (inFlight.get(index) == 0 && inFlight.compareAndSet(index, 0, 1)) {
+                return index;
+            }
+        }
+        inFlight.incrementAndGet(start);
+        shared.increment();
+        return start;
+    }
+
+    /**
+     * Répliques du pool (ex: pour préchauffer chacune d'elles).
+     */
+    public List<PreparedInference> getReplicas() {
+        return Collections.unmodifiableList(Arrays.asList(replicas));
+    }
+
+    public int size() {
+        return replicas.length;
+    }
+
+    /**
+     * Forme de l'entrée déclarée par la signature (identique pour toutes les répliques).
+     */
+    public Shape getInputShape() {
+        return replicas[0].getInputShape();
+    }
+
+    public boolean isBatchSupported() {
+        return replicas[0].isBatchSupported();
+    }
+
+    public List<String> getOutputKeys() {
+        return replicas[0].getOutputKeys();
+    }
+
+    /**
+     * Retourne l'utilisation du pool depuis sa création.
+     * @return Instantané des statistiques
+     */
+    public PoolStats getStats() {
+        long elapsed = Math.max(1L, System.nanoTime() - createdNanos);
+        double[] utilization = new double[replicas.length];
+        int busy = 0;
+        for (int i = 0; i < replicas.length; i++) {
+            utilization[i] = Math.min(1.0, (double) busyNanos[i].sum() / elapsed);
+            if (inFlight.get(i) > 0) {
+                busy++;
+            }
+        }
+        return new PoolStats(replicas.length, busy, runs.sum(), shared.sum(), utilization);
+    }
+
+    /**
+     * Statistiques d'utilisation d'un pool.
+     */
+    public static final class PoolStats {
+        private final int size;
+        private final int busy;
+        private final long runs;
+        private final long shared;
+        private final double[] utilization;
+
+        PoolStats(int size, int busy, long runs, long shared, double[] utilization) {
+            this.size = size;
+            this.busy = busy;
+            this.runs = runs;
+            this.shared = shared;
+            this.utilization = utilization;
+        }
+
+        /** Nombre de répliques */
+        public int getSize() {
+            return size;
+        }
+
+        /** Répliques occupées à l'instant de la mesure */
+        public int getBusy() {
+            return busy;
+        }
+
+        /** Nombre total d'inférences exécutées */
+        public long getRuns() {
+            return runs;
+        }
+
+        /** Inférences ayant dû partager une réplique occupée (pool sous-dimensionné) */
+        public long getShared() {
+            return shared;
+        }
+
+        /** Part du temps pendant laquelle chaque réplique a été occupée (0-1) */
+        public double[] getUtilization() {
+            return utilization.clone();
+        }
+
+        /** Utilisation moyenne des répliques (0-1) */
+        public double getAverageUtilization() {
+            double sum = 0;
+            for (double u : utilization) {
+                sum += u;
+            }
+            return utilization.length == 0 ? 0.0 : sum / utilization.length;
+        }
+
+        @Override
+        public String toString() {
+            return "PoolStats{size=" + size + ", busy=" + busy + ", runs=" + runs + ", shared=" + shared
+                    + ", utilization=" + Arrays.toString(utilization) + "}";
+        }
+    }
+}
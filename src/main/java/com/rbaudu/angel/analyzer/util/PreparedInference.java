@@ -0,0 +1,150 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.tensorflow.GraphOperation;
+import org.tensorflow.Output;
+import org.tensorflow.Result;
+import org.tensorflow.SavedModelBundle;
+import org.tensorflow.Session;
+import org.tensorflow.Signature;
+import org.tensorflow.Tensor;
+import org.tensorflow.ndarray.Shape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Appel d'inférence préparé à partir de la signature d'un modèle.
+ * <p>
+ * Les opérations d'entrée et de sortie sont résolues une seule fois (au chargement du modèle)
+ * à partir des noms logiques de la signature : aucun nom d'opération n'est codé en dur et
+ * chaque inférence se limite à alimenter et exécuter la session avec des handles déjà résolus.
+ * Une instance est immuable et peut être partagée entre threads.
+ */
+public class PreparedInference {
+
+    private final Session session;
+    private final Signature signature;
+    private final Output<?> input;
+    private final Shape inputShape;
+    private final Output<?>[] outputs;
+    private final List<String> outputKeys;
+
+    private PreparedInference(Session session, Signature signature, Output<?> input, Shape inputShape,
+                              Output<?>[] outputs, List<String> outputKeys) {
+        this.session = session;
+        this.signature = signature;
+        this.input = input;
+        this.inputShape = inputShape;
+        this.outputs = outputs;
+        this.outputKeys = outputKeys;
+    }
+
+    /**
+     * Prépare un appel d'inférence sur la signature d'un modèle.
+     * @param model Modèle chargé
+     * @param signatureKey Clé de la signature (ex: {@link Signature#DEFAULT_KEY})
+     * @param inputKey Nom logique de l'entrée, ou null si la signature n'en déclare qu'une
+     * @param outputKeys Noms logiques des sorties à récupérer, dans l'ordre souhaité ;
+     *                   si aucun n'est donné, la signature doit déclarer une seule sortie
+     * @return Appel préparé
+     * @throws IllegalArgumentException si la signature, l'entrée ou une sortie est introuvable,
+     *                                  ou si l'entrée ou la sortie implicite est ambiguë
+     */
+    public static PreparedInference prepare(SavedModelBundle model, String signatureKey,
+                                            String inputKey, String... outputKeys) {
+        Signature signature = model.signatures().stream()
+                .filter(s -> s.key().equals(signatureKey))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Signature '" + signatureKey
+                        + "' introuvable, signatures disponibles: "
+                        + model.signatures().stream().map(Signature::key).toList()));
+
+        String inputName = inputKey != null ? inputKey : single(signature.inputNames(), "entrée", signatureKey);
+        Signature.TensorDescription inputDesc = signature.getInputs().get(inputName);
+        if (inputDesc == null) {
+            throw new IllegalArgumentException("Entrée '" + inputName + "' absente de la signature '"
+                    + signatureKey + "': " + signature.inputNames());
+        }
+
+        List<String> keys = outputKeys.length > 0
+                ? Arrays.asList(outputKeys)
+                : List.of(single(signature.outputNames(), "sortie", signatureKey));
+        Output<?>[] outputs = new Output<?>[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            Signature.TensorDescription desc = signature.getOutputs().get(keys.get(i));
+            if (desc == null) {
+                throw new IllegalArgumentException("Sortie '" + keys.get(i) + "' absente de la signature '"
+                        + signatureKey + "': " + signature.outputNames());
+            }
+            outputs[i] = resolve(model, desc.name);
+        }
+
+        return new PreparedInference(model.session(), signature, resolve(model, inputDesc.name),
+                inputDesc.shape, outputs, new ArrayList<>(keys));
+    }
+
+    /**
+     * Exécute l'inférence sur un tensor d'entrée.
+     * @param inputTensor Tensor d'entrée
+     * @return Résultat contenant les sorties dans l'ordre demandé à la préparation (à fermer par l'appelant)
+     */
+    public Result run(Tensor inputTensor) {
+        Session.Runner runner = session.runner().feed(input, inputTensor);
+        for (Output<?> output : outputs) {
+            runner.fetch(output);
+        }
+        return runner.run();
+    }
+
+    /**
+     * Forme de l'entrée déclarée par la signature (les dimensions inconnues valent -1).
+     */
+    public Shape getInputShape() {
+        return inputShape;
+    }
+
+    /**
+     * Indique si l'entrée accepte plusieurs images par appel (dimension de batch non fixée à 1).
+     */
+    public boolean isBatchSupported() {
+        return inputShape.numDimensions() > 0 && inputShape.get(0) != 1;
+    }
+
+    /**
+     * Noms logiques des sorties récupérées, dans l'ordre du résultat.
+     */
+    public List<String> getOutputKeys() {
+        return outputKeys;
+    }
+
+    public Signature getSignature() {
+        return signature;
+    }
+
+    /**
+     * Résout un nom de tensor du graphe ("operation:index") en sortie d'opération.
+     */
+    private static Output<?> resolve(SavedModelBundle model, String tensorName) {
+        int separator = tensorName.lastIndexOf(':');
+        String opName = separator > 0 ? tensorName.substring(0, separator) : tensorName;
+        int index = separator > 0 ? Integer.parseInt(tensorName.substring(separator + 1)) : 0;
+        GraphOperation operation = model.graph().operation(opName);
+        if (operation == null) {
+            throw new IllegalArgumentException("Opération '" + opName + "' introuvable dans le graphe");
+        }
+        return operation.output(index);
+    }
+
+    /**
+     * Nom de l'unique entrée ou sortie de la signature, utilisé quand aucune clé n'est donnée.
+     */
+    private static String single(Set<String> names, String kind, String signatureKey) {
+        if (names.size() != 1) {
+            throw new IllegalArgumentException("La signature '" + signatureKey + "' déclare " + names.size()
+                    + " " + kind + "(s) " + names + " : clé explicite requise");
+        }
+        return names.iterator().next();
+    }
+}
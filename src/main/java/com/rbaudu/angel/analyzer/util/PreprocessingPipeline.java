@@ -0,0 +1,350 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.tensorflow.Tensor;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TUint8;
+
+import java.lang.ref.Cleaner;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_32F;
+import static org.bytedeco.opencv.global.opencv_core.CV_32FC;
+import static org.bytedeco.opencv.global.opencv_core.CV_8U;
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC;
+
+/**
+ * Pipeline de prétraitement d'images configuré pour un modèle donné.
+ * <p>
+ * Enchaîne redimensionnement, conversion de l'ordre des couleurs et mise à l'échelle
+ * (valeur * scale + offset) en écrivant le résultat final directement dans la mémoire
+ * native du tensor d'entrée. Les Mat intermédiaires sont préallouées par thread et
+ * réutilisées d'une image à l'autre : aucune Mat n'est créée par image en régime établi.
+ * <p>
+ * Les images sources sont attendues au format OpenCV BGR (ou niveaux de gris / BGRA).
+ * Les durées de chaque étape de la dernière préparation sont conservées par thread
+ * ({@link #lastTimings()}) pour alimenter les métriques d'inférence.
+ * <p>
+ * Les Mat de travail d'un thread sont libérées dès que ce thread est terminé et collecté ;
+ * celles des threads encore actifs le sont par {@link #close()}, appelé par le propriétaire du
+ * pipeline à son arrêt.
+ */
+public class PreprocessingPipeline {
+
+    /**
+     * Ordre des canaux attendu par le modèle.
+     */
+    public enum ColorOrder { RGB, BGR }
+
+    /**
+     * Type des éléments du tensor d'entrée du modèle.
+     */
+    public enum TensorType { UINT8, FLOAT32 }
+
+    private static final int CHANNELS = 3;
+
+    /** Surveille la fin des threads pour libérer leurs Mat de travail */
+    private static final Cleaner THREAD_CLEANER = Cleaner.create();
+
+    private final int width;
+    private final int height;
+    private final ColorOrder colorOrder;
+    private final TensorType tensorType;
+    private final double scale;
+    private final double offset;
+    private final NativeResourceTracker tracker;
+    private final String component;
+
+    private final Set<Scratch> scratches = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(this::createScratch);
+
+    /**
+     * Crée un pipeline de prétraitement.
+     * @param width Largeur d'entrée du modèle
+     * @param height Hauteur d'entrée du modèle
+     * @param colorOrder Ordre des canaux attendu par le modèle
+     * @param tensorType Type des éléments du tensor
+     * @param scale Facteur appliqué à chaque valeur de pixel
+     * @param offset Décalage ajouté après la mise à l'échelle
+     */
+    public PreprocessingPipeline(int width, int height, ColorOrder colorOrder, TensorType tensorType,
+                                 double scale, double offset) {
+        this(width, height, colorOrder, tensorType, scale, offset, null, null);
+    }
+
+    private PreprocessingPipeline(int width, int height, ColorOrder colorOrder, TensorType tensorType,
+                                  double scale, double offset, NativeResourceTracker tracker, String component) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Dimensions d'entrée invalides: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.colorOrder = colorOrder;
+        this.tensorType = tensorType;
+        this.scale = scale;
+        this.offset = offset;
+        this.tracker = tracker;
+        this.component = component;
+    }
+
+    /**
+     * Retourne un pipeline identique dont chaque tensor créé est compté comme allocation native
+     * du composant (détection de fuites).
+     * @param tracker Suivi des ressources natives
+     * @param component Nom du composant propriétaire des tensors
+     * @return Nouveau pipeline
+     */
+    public PreprocessingPipeline tracked(NativeResourceTracker tracker, String component) {
+        return new PreprocessingPipeline(width, height, colorOrder, tensorType, scale, offset, tracker, component);
+    }
+
+    /**
+     * Pipeline pour un modèle attendant des valeurs brutes RGB (0-255) en uint8.
+     */
+    public static PreprocessingPipeline uint8Rgb(int width, int height) {
+        return new PreprocessingPipeline(width, height, ColorOrder.RGB, TensorType.UINT8, 1.0, 0.0);
+    }
+
+    /**
+     * Pipeline pour un modèle attendant des valeurs RGB normalisées (0-1) en float32.
+     */
+    public static PreprocessingPipeline float32Rgb(int width, int height) {
+        return new PreprocessingPipeline(width, height, ColorOrder.RGB, TensorType.FLOAT32, 1.0 / 255, 0.0);
+    }
+
+    /**
+     * Forme du tensor produit pour un batch donné: [batchSize, height, width, 3].
+     */
+    public Shape shape(int batchSize) {
+        return Shape.of(batchSize, height, width, CHANNELS);
+    }
+
+    /**
+     * Nombre d'octets occupés par une image dans le tensor.
+     */
+    public long frameBytes() {
+        return (long) width * height * CHANNELS * (tensorType == TensorType.FLOAT32 ? Float.BYTES : 1);
+    }
+
+    /**
+     * Prétraite une image et retourne un tensor de forme [1, height, width, 3].
+     * @param frame Image source (BGR)
+     * @return Tensor prêt pour l'inférence
+     */
+    public Tensor apply(Mat frame) {
+        return allocate(1, tensor -> fill(frame, tensor, 0));
+    }
+
+    /**
+     * Prétraite plusieurs images dans un unique tensor de forme [N, height, width, 3].
+     * @param frames Images sources (BGR)
+     * @return Tensor batché prêt pour l'inférence
+     */
+    public Tensor apply(List<Mat> frames) {
+        if (frames.isEmpty()) {
+            throw new IllegalArgumentException("Aucune image à prétraiter");
+        }
+        return allocate(frames.size(), tensor -> {
+            for (int i = 0; i < frames.size(); i++) {
+                fill(frames.get(i), tensor, i);
+            }
+        });
+    }
+
+    /**
+     * Prétraite une image et écrit le résultat à la position {@code batchIndex} d'un tensor existant.
+     * @param frame Image source (BGR)
+     * @param tensor Tensor cible, créé avec {@link #shape(int)}
+     * @param batchIndex Index de l'image dans le batch
+     */
+    public void fill(Mat frame, Tensor tensor, int batchIndex) {
+        Scratch s = scratch.get();
+        Timings timings = s.timings;
+
+        // Redimensionnement dans une Mat réutilisée (évité si l'image a déjà la bonne taille)
+        Mat resized = frame;
+        if (frame.cols() != width || frame.rows() != height) {
+            long start = System.nanoTime();
+            opencv_imgproc.resize(frame, s.resized, s.size);
+            timings.resizeNanos += System.nanoTime() - start;
+            resized = s.resized;
+        }
+
+        int colorCode = colorConversion(resized.channels());
+        boolean identity = scale == 1.0 && offset == 0.0;
+        long byteOffset = batchIndex * frameBytes();
+
+        if (tensorType == TensorType.UINT8) {
+            try (Mat target = TensorMemory.asMat(tensor, byteOffset, height, width, CV_8UC(CHANNELS))) {
+                if (identity) {
+                    // Conversion des couleurs écrite directement dans le tensor
+                    if (colorCode >= 0) {
+                        long start = System.nanoTime();
+                        opencv_imgproc.cvtColor(resized, target, colorCode);
+                        timings.colorNanos += System.nanoTime() - start;
+                    } else {
+                        resized.copyTo(target);
+                    }
+                } else {
+                    convertScaled(resized, colorCode, s, target, CV_8U);
+                }
+            }
+        } else {
+            try (Mat target = TensorMemory.asMat(tensor, byteOffset, height, width, CV_32FC(CHANNELS))) {
+                convertScaled(resized, colorCode, s, target, CV_32F);
+            }
+        }
+    }
+
+    /**
+     * Conversion des couleurs sur l'image réduite (8 bits, peu coûteuse) puis mise à l'échelle
+     * écrite directement dans le tensor.
+     */
+    private void convertScaled(Mat resized, int colorCode, Scratch s, Mat target, int depth) {
+        Mat source = resized;
+        if (colorCode >= 0) {
+            long start = System.nanoTime();
+            opencv_imgproc.cvtColor(resized, s.colored, colorCode);
+            s.timings.colorNanos += System.nanoTime() - start;
+            source = s.colored;
+        }
+        source.convertTo(target, depth, scale, offset);
+    }
+
+    /**
+     * Code de conversion OpenCV vers l'ordre de canaux du modèle, ou -1 si aucune conversion.
+     */
+    private int colorConversion(int channels) {
+        switch (channels) {
+            case 1:
+                return colorOrder == ColorOrder.RGB ? opencv_imgproc.COLOR_GRAY2RGB : opencv_imgproc.COLOR_GRAY2BGR;
+            case 3:
+                return colorOrder == ColorOrder.RGB ? opencv_imgproc.COLOR_BGR2RGB : -1;
+            case 4:
+                return colorOrder == ColorOrder.RGB ? opencv_imgproc.COLOR_BGRA2RGB : opencv_imgproc.COLOR_BGRA2BGR;
+            default:
+                throw new IllegalArgumentException("Nombre de canaux non supporté: " + channels);
+        }
+    }
+
+    private Tensor allocate(int batchSize, Consumer<Tensor> init) {
+        Timings timings = scratch.get().timings;
+        timings.reset();
+        long start = System.nanoTime();
+        Shape shape = shape(batchSize);
+        Tensor tensor = tensorType == TensorType.FLOAT32
+                ? TFloat32.tensorOf(shape, init::accept)
+                : TUint8.tensorOf(shape, init::accept);
+        // Le reste (allocation, copie et mise à l'échelle dans le tensor) revient à sa construction
+        timings.tensorNanos = System.nanoTime() - start - timings.resizeNanos - timings.colorNanos;
+        return tracker != null ? tracker.allocated(component, tensor) : tensor;
+    }
+
+    private Scratch createScratch() {
+        Scratch s = new Scratch(width, height);
+        scratches.add(s);
+        // Ni le thread ni le pipeline ne sont capturés : l'action ne retient que l'ensemble et les Mat
+        Set<Scratch> owners = scratches;
+        THREAD_CLEANER.register(Thread.currentThread(), () -> release(owners, s));
+        return s;
+    }
+
+    /**
+     * Libère des Mat de travail si elles ne l'ont pas déjà été (thread terminé ou arrêt).
+     */
+    private static void release(Set<Scratch> owners, Scratch s) {
+        if (owners.remove(s)) {
+            s.close();
+        }
+    }
+
+    /**
+     * Libère les Mat de travail de tous les threads. Le pipeline ne doit plus être utilisé
+     * ensuite.
+     */
+    public void close() {
+        for (Scratch s : scratches) {
+            release(scratches, s);
+        }
+    }
+
+    /**
+     * Durées de la dernière préparation de tensor effectuée par le thread courant.
+     * L'objet retourné est réutilisé par le thread : le lire avant la préparation suivante.
+     */
+    public Timings lastTimings() {
+        return scratch.get().timings;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public ColorOrder getColorOrder() {
+        return colorOrder;
+    }
+
+    public TensorType getTensorType() {
+        return tensorType;
+    }
+
+    /**
+     * Mat de travail propres à un thread, réutilisées d'une image à l'autre.
+     */
+    private static final class Scratch {
+        final Mat resized = new Mat();
+        final Mat colored = new Mat();
+        final Size size;
+        final Timings timings = new Timings();
+
+        Scratch(int width, int height) {
+            size = new Size(width, height);
+        }
+
+        void close() {
+            resized.close();
+            colored.close();
+            size.close();
+        }
+    }
+
+    /**
+     * Durées (ns) des étapes d'une préparation de tensor, cumulées sur les images d'un batch.
+     */
+    public static final class Timings {
+        private long resizeNanos;
+        private long colorNanos;
+        private long tensorNanos;
+
+        void reset() {
+            resizeNanos = 0;
+            colorNanos = 0;
+            tensorNanos = 0;
+        }
+
+        /** Redimensionnement */
+        public long getResizeNanos() {
+            return resizeNanos;
+        }
+
+        /** Conversion de l'ordre des couleurs */
+        public long getColorNanos() {
+            return colorNanos;
+        }
+
+        /** Allocation du tensor, copie et mise à l'échelle des pixels */
+        public long getTensorNanos() {
+            return tensorNanos;
+        }
+    }
+}
@@ -1,17 +1,25 @@
 package com.rbaudu.angel.analyzer.util;
 
 import org.bytedeco.opencv.opencv_core.Mat;
-import org.bytedeco.javacpp.BytePointer;
 import org.tensorflow.Tensor;
 import org.tensorflow.ndarray.Shape;
-import org.tensorflow.ndarray.StdArrays;
 import org.tensorflow.types.TFloat32;
 import org.tensorflow.types.TUint8;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_32FC;
+import static org.bytedeco.opencv.global.opencv_core.CV_8U;
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC;
 
 /**
  * Utilitaires spécialisés pour la conversion entre différents formats de tenseurs.
@@ -22,6 +30,12 @@ import java.util.Arrays;
 public class TensorConverterUtils {
     private static final Logger logger = LoggerFactory.getLogger(TensorConverterUtils.class);
     
+    /** Nombre d'éléments au-delà duquel la conversion uint8 → float32 peut être parallélisée */
+    private static final long PARALLEL_THRESHOLD = 1L << 20;
+    
+    /** Taille des blocs de la conversion parallèle (en éléments) */
+    private static final long CHUNK_ELEMENTS = 1L << 18;
+    
     /**
      * Convertit un tensor TensorFlow Uint8 en tensor Float32 en effectuant une normalisation.
      * Cette méthode est utile pour adapter des modèles qui attendent des entrées normalisées
@@ -31,121 +45,245 @@ public class TensorConverterUtils {
      * @return Un nouveau tensor TFloat32 contenant les mêmes données mais normalisées entre 0 et 1
      */
     public Tensor convertUint8ToFloat32(Tensor uint8Tensor) {
+        return convertUint8ToFloat32(uint8Tensor, null, null);
+    }
+    
+    /**
+     * Convertit un tensor Uint8 de forme quelconque en tensor Float32, avec normalisation par canal
+     * optionnelle : {@code (x / 255 - mean[c]) / std[c]}, le canal étant la dernière dimension.
+     *
+     * @param uint8Tensor Le tensor source au format uint8
+     * @param mean Moyenne par canal (valeurs entre 0 et 1), ou null pour aucune
+     * @param std Écart-type par canal, ou null pour aucun
+     * @return Un nouveau tensor TFloat32 de même forme
+     */
+    public Tensor convertUint8ToFloat32(Tensor uint8Tensor, float[] mean, float[] std) {
         if (!(uint8Tensor instanceof TUint8)) {
             throw new IllegalArgumentException("Le tensor d'entrée doit être de type TUint8");
         }
-        
         TUint8 input = (TUint8) uint8Tensor;
+        TFloat32 output = TFloat32.tensorOf(input.shape());
+        try {
+            convertUint8ToFloat32(input, output, mean, std);
+        } catch (RuntimeException e) {
+            output.close();
+            throw e;
+        }
+        return output;
+    }
+    
+    /**
+     * Convertit un tensor Uint8 dans un tensor Float32 existant de même forme (ex: tensor
+     * d'entrée réutilisé d'une image à l'autre), sur le thread appelant.
+     * <p>
+     * Les octets sont lus directement dans la mémoire native du tensor source et les valeurs
+     * normalisées écrites directement dans celle du tensor cible, sans tableau Java
+     * intermédiaire.
+     *
+     * @param input Tensor source
+     * @param output Tensor cible, de même forme que la source
+     * @param mean Moyenne par canal (valeurs entre 0 et 1), ou null pour aucune
+     * @param std Écart-type par canal, ou null pour aucun
+     */
+    public void convertUint8ToFloat32(TUint8 input, TFloat32 output, float[] mean, float[] std) {
+        convertUint8ToFloat32(input, output, mean, std, null);
+    }
+    
+    /**
+     * Variante de {@link #convertUint8ToFloat32(TUint8, TFloat32, float[], float[])} qui, au-delà
+     * de {@value #PARALLEL_THRESHOLD} éléments (ex: image 1080p), découpe la conversion en blocs
+     * partagés entre le thread appelant et l'exécuteur fourni. Le parallélisme reste ainsi borné
+     * par le pool de l'appelant (ex: threads d'inférence des pipelines) au lieu d'occuper le pool
+     * commun de la JVM. L'appelant traite lui-même les blocs non pris : l'exécuteur peut être le
+     * pool sur lequel il s'exécute, même saturé.
+     *
+     * @param input Tensor source
+     * @param output Tensor cible, de même forme que la source
+     * @param mean Moyenne par canal (valeurs entre 0 et 1), ou null pour aucune
+     * @param std Écart-type par canal, ou null pour aucun
+     * @param executor Exécuteur des blocs supplémentaires, ou null pour une conversion séquentielle
+     */
+    public void convertUint8ToFloat32(TUint8 input, TFloat32 output, float[] mean, float[] std,
+                                      Executor executor) {
         Shape shape = input.shape();
-        
-        // Obtenir les dimensions
-        long[] dims = shape.asArray();
-        int totalSize = 1;
-        for (long dim : dims) {
-            totalSize *= dim;
+        if (!shape.equals(output.shape())) {
+            throw new IllegalArgumentException("Formes différentes: " + shape + " / " + output.shape());
         }
-        
-        // Créer un array pour stocker les données normalisées
-        byte[] rawData = new byte[totalSize];
-        input.data().get(rawData);
-        
-        // Normaliser les données
-        float[] normalizedData = new float[totalSize];
-        for (int i = 0; i < totalSize; i++) {
-            normalizedData[i] = (rawData[i] & 0xFF) / 255.0f;
+        long size = shape.size();
+        if (size == 0) {
+            return;
         }
         
-        // Créer le nouveau tensor TFloat32
-        TFloat32 output = TFloat32.tensorOf(shape);
+        // Facteur et décalage par canal : x * scale[c] + offset[c]
+        int channels = channelCount(shape, mean, std);
+        float[] scale = new float[channels];
+        float[] offset = new float[channels];
+        for (int c = 0; c < channels; c++) {
+            float s = std != null ? std[c] : 1f;
+            if (s == 0f) {
+                throw new IllegalArgumentException("Écart-type nul pour le canal " + c);
+            }
+            scale[c] = 1f / (255f * s);
+            offset[c] = mean != null ? -mean[c] / s : 0f;
+        }
         
-        // Déterminer les dimensions pour StdArrays.ndCopyOf
-        if (dims.length == 4) { // [batch, height, width, channels]
-            float[][][][] reshapedData = reshapeToNDArray(normalizedData, (int)dims[0], (int)dims[1], (int)dims[2], (int)dims[3]);
-            output.setData(StdArrays.ndCopyOf(reshapedData));
-        } else {
-            logger.warn("Conversion de forme de tensor non supportée: {}. Utilisation d'une méthode alternative.", Arrays.toString(dims));
-            // Méthode alternative si la forme n'est pas 4D
-            output.setData(StdArrays.of(normalizedData).reshape(dims));
+        ByteBuffer source = TensorMemory.pointer(input).asByteBuffer();
+        FloatBuffer target = TensorMemory.pointer(output).asByteBuffer().order(ByteOrder.nativeOrder()).asFloatBuffer();
+        long pixels = size / channels;
+        if (executor == null || size < PARALLEL_THRESHOLD) {
+            convertRange(source, target, 0, pixels, channels, scale, offset);
+            return;
         }
         
-        return output;
+        long chunkPixels = Math.max(1, CHUNK_ELEMENTS / channels);
+        int chunks = (int) ((pixels + chunkPixels - 1) / chunkPixels);
+        AtomicInteger nextChunk = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(chunks);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Runnable worker = () -> {
+            int chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                try {
+                    convertRange(source, target, chunk * chunkPixels, Math.min(pixels, (chunk + 1) * chunkPixels),
+                            channels, scale, offset);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        for (int i = 1; i < chunks; i++) {
+            try {
+                executor.execute(worker);
+            } catch (RuntimeException e) {
+                break; // Exécuteur saturé ou arrêté : l'appelant traite les blocs restants
+            }
+        }
+        worker.run();
+        // Seuls les blocs déjà pris par d'autres threads restent en cours. L'attente ne peut pas être
+        // abandonnée : ils écrivent encore dans la mémoire native du tensor cible
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
     }
     
     /**
-     * Convertit un tableau 1D en tableau 4D
-     * @param data Tableau plat 1D
-     * @param batch Taille du batch
-     * @param height Hauteur
-     * @param width Largeur
-     * @param channels Nombre de canaux
-     * @return Tableau 4D redimensionné
+     * Nombre de canaux de la normalisation : taille de la dernière dimension si une moyenne ou un
+     * écart-type est fourni, 1 sinon (même normalisation pour tous les éléments).
      */
-    private float[][][][] reshapeToNDArray(float[] data, int batch, int height, int width, int channels) {
-        float[][][][] result = new float[batch][height][width][channels];
-        int index = 0;
-        
-        for (int b = 0; b < batch; b++) {
-            for (int h = 0; h < height; h++) {
-                for (int w = 0; w < width; w++) {
-                    for (int c = 0; c < channels; c++) {
-                        result[b][h][w][c] = data[index++];
-                    }
-                }
+    private static int channelCount(Shape shape, float[] mean, float[] std) {
+        if (mean == null && std == null) {
+            return 1;
+        }
+        if (shape.numDimensions() == 0) {
+            throw new IllegalArgumentException("La normalisation par canal nécessite au moins une dimension");
+        }
+        long channels = shape.get(shape.numDimensions() - 1);
+        if ((mean != null && mean.length != channels) || (std != null && std.length != channels)) {
+            throw new IllegalArgumentException("Moyenne/écart-type attendus pour " + channels + " canaux");
+        }
+        return (int) channels;
+    }
+    
+    /**
+     * Convertit les pixels [from, to) ; accès absolus, sans état partagé entre les blocs.
+     */
+    private static void convertRange(ByteBuffer source, FloatBuffer target, long from, long to,
+                                     int channels, float[] scale, float[] offset) {
+        int end = Math.toIntExact(to * channels);
+        int i = Math.toIntExact(from * channels);
+        if (channels == 1) {
+            float s = scale[0];
+            float o = offset[0];
+            for (; i < end; i++) {
+                target.put(i, (source.get(i) & 0xFF) * s + o);
+            }
+            return;
+        }
+        while (i < end) {
+            for (int c = 0; c < channels; c++, i++) {
+                target.put(i, (source.get(i) & 0xFF) * scale[c] + offset[c]);
             }
         }
-        
-        return result;
     }
     
     /**
-     * Convertit un tensor TensorFlow Float32 en image OpenCV
-     * @param tensor Le tensor source au format float32
-     * @return Une image OpenCV (Mat)
+     * Convertit un tensor TensorFlow Float32 ou Uint8 en image OpenCV 8 bits (premier élément
+     * du batch).
+     * @param tensor Le tensor source, de forme [h, w], [h, w, c] ou [n, h, w, c]
+     * @return Une nouvelle image OpenCV (Mat), à fermer par l'appelant
      */
     public Mat tensorToMat(Tensor tensor) {
+        Mat image = new Mat();
+        try {
+            return tensorToMat(tensor, 0, image);
+        } catch (RuntimeException e) {
+            image.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Écrit un élément d'un tensor dans une image OpenCV 8 bits réutilisée.
+     * <p>
+     * Le tensor est vu comme une Mat partageant sa mémoire native : un tensor uint8 est copié
+     * en bloc, un tensor float32 (valeurs entre 0 et 1) est multiplié par 255 et converti avec
+     * saturation (valeurs hors bornes ramenées à 0 ou 255) par OpenCV, directement dans l'image
+     * cible. Aucun tableau Java intermédiaire n'est créé, et l'image cible n'est réallouée que
+     * si ses dimensions ou son type changent.
+     * @param tensor Le tensor source, de forme [h, w], [h, w, c] ou [n, h, w, c] avec c = 1, 3 ou 4
+     * @param batchIndex Index de l'élément du batch à convertir (0 sans dimension de batch)
+     * @param target Image cible, (re)dimensionnée si nécessaire
+     * @return L'image cible
+     */
+    public Mat tensorToMat(Tensor tensor, int batchIndex, Mat target) {
         if (!(tensor instanceof TFloat32) && !(tensor instanceof TUint8)) {
             throw new IllegalArgumentException("Le tensor doit être de type TFloat32 ou TUint8");
         }
         
         Shape shape = tensor.shape();
-        long[] dims = shape.asArray();
-        
-        if (dims.length != 4 || dims[0] != 1) {
-            throw new IllegalArgumentException("Le tensor doit avoir une forme [1, height, width, channels]");
+        int rank = shape.numDimensions();
+        if (rank < 2 || rank > 4) {
+            throw new IllegalArgumentException("Forme de tensor non supportée: " + shape);
+        }
+        int batch = rank == 4 ? (int) shape.get(0) : 1;
+        int height = (int) shape.get(rank == 4 ? 1 : 0);
+        int width = (int) shape.get(rank == 4 ? 2 : 1);
+        int channels = rank >= 3 ? (int) shape.get(rank - 1) : 1;
+        if (channels != 1 && channels != 3 && channels != 4) {
+            throw new IllegalArgumentException("Nombre de canaux non supporté: " + channels);
+        }
+        if (batchIndex < 0 || batchIndex >= batch) {
+            throw new IllegalArgumentException("Index de batch " + batchIndex + " hors de [0, " + batch + ")");
         }
         
-        int height = (int) dims[1];
-        int width = (int) dims[2];
-        int channels = (int) dims[3];
-        
-        // Créer une nouvelle image OpenCV
-        Mat image = new Mat(height, width, channels == 3 ? 16 : 8); // CV_8UC3 ou CV_8UC1
+        boolean isFloat = tensor instanceof TFloat32;
+        long elementBytes = isFloat ? Float.BYTES : 1;
+        long byteOffset = batchIndex * (long) height * width * channels * elementBytes;
+        target.create(height, width, CV_8UC(channels));
         
-        // Copier les données du tensor vers l'image
-        if (tensor instanceof TFloat32) {
-            // Obtenir les données normalisées
-            float[] data = new float[(int) tensor.size()];
-            ((TFloat32) tensor).data().get(data);
-            
-            // Convertir en bytes (dénormaliser si nécessaire)
-            byte[] imageData = new byte[height * width * channels];
-            for (int i = 0; i < data.length; i++) {
-                imageData[i] = (byte) (data[i] * 255.0f);
+        // Vue sur la mémoire du tensor, sans copie
+        try (Mat view = TensorMemory.asMat(tensor, byteOffset, height, width,
+                isFloat ? CV_32FC(channels) : CV_8UC(channels))) {
+            if (isFloat) {
+                view.convertTo(target, CV_8U, 255.0, 0.0);
+            } else {
+                view.copyTo(target);
             }
-            
-            // Copier dans l'image OpenCV
-            BytePointer imagePtr = image.data();
-            imagePtr.put(imageData);
-        } else {
-            // C'est un TUint8, copier directement
-            byte[] data = new byte[(int) tensor.size()];
-            ((TUint8) tensor).data().get(data);
-            
-            // Copier dans l'image OpenCV
-            BytePointer imagePtr = image.data();
-            imagePtr.put(data);
         }
-        
-        return image;
+        return target;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.Pointer;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.tensorflow.Tensor;
+import org.tensorflow.ndarray.buffer.ByteDataBuffer;
+import org.tensorflow.ndarray.buffer.DataStorageVisitor;
+
+/**
+ * Accès direct à la mémoire native des tenseurs TensorFlow.
+ * Les données d'un tensor sont allouées hors du tas Java : cette classe permet de les
+ * exposer sous forme de pointeur JavaCPP ou de Mat OpenCV, afin d'y écrire ou d'y lire
+ * sans tableau Java intermédiaire.
+ * <p>
+ * Les pointeurs et les Mat retournés ne possèdent pas la mémoire : ils ne sont valides
+ * que tant que le tensor d'origine n'est pas fermé.
+ */
+public final class TensorMemory {
+
+    private TensorMemory() {
+    }
+
+    /**
+     * Retourne un pointeur sur la mémoire native d'un tensor.
+     * @param tensor Tensor à exposer
+     * @return Pointeur couvrant l'ensemble des octets du tensor
+     * @throws IllegalStateException si la mémoire du tensor n'est pas native
+     */
+    public static BytePointer pointer(Tensor tensor) {
+        ByteDataBuffer data = tensor.asRawTensor().data();
+        Long address = data.accept(new DataStorageVisitor<Long>() {
+            @Override
+            public Long visit(long address, long length, long scale) {
+                return address;
+            }
+
+            @Override
+            public Long fallback() {
+                return null;
+            }
+        });
+        if (address == null || address == 0L) {
+            throw new IllegalStateException("La mémoire du tensor n'est pas accessible en natif");
+        }
+        return new TensorPointer(address, data.size());
+    }
+
+    /**
+     * Crée une Mat OpenCV qui partage la mémoire d'un tensor (aucune copie).
+     * Toute écriture OpenCV dans cette Mat est directement visible dans le tensor.
+     * @param tensor Tensor cible
+     * @param byteOffset Décalage en octets dans le tensor (ex: début d'un élément du batch)
+     * @param rows Nombre de lignes
+     * @param cols Nombre de colonnes
+     * @param type Type OpenCV des éléments (ex: CV_8UC3, CV_32FC3)
+     * @return Mat partageant la mémoire du tensor, à fermer après usage
+     */
+    public static Mat asMat(Tensor tensor, long byteOffset, int rows, int cols, int type) {
+        BytePointer base = pointer(tensor);
+        if (byteOffset < 0 || byteOffset >= base.limit()) {
+            throw new IllegalArgumentException("Décalage hors du tensor: " + byteOffset);
+        }
+        return new Mat(rows, cols, type, base.position(byteOffset));
+    }
+
+    /**
+     * Copie le contenu d'une image dans la mémoire d'un tensor, à partir d'un décalage donné.
+     * Une image continue est copiée en un seul bloc ; sinon la copie se fait ligne par ligne
+     * par OpenCV à travers une Mat partageant la mémoire du tensor.
+     * @param frame Image source
+     * @param tensor Tensor cible, de même type d'éléments que l'image
+     * @param byteOffset Décalage en octets dans le tensor
+     */
+    public static void copyFrom(Mat frame, Tensor tensor, long byteOffset) {
+        long bytes = frame.total() * frame.elemSize();
+        BytePointer base = pointer(tensor);
+        if (byteOffset < 0 || byteOffset + bytes > base.limit()) {
+            throw new IllegalArgumentException("L'image (" + bytes + " octets) dépasse la capacité du tensor");
+        }
+        if (frame.isContinuous()) {
+            Pointer.memcpy(base.position(byteOffset), frame.data(), bytes);
+        } else {
+            try (Mat view = new Mat(frame.rows(), frame.cols(), frame.type(), base.position(byteOffset))) {
+                frame.copyTo(view);
+            }
+        }
+    }
+
+    /**
+     * Pointeur non propriétaire sur la mémoire d'un tensor.
+     */
+    private static final class TensorPointer extends BytePointer {
+        TensorPointer(long address, long size) {
+            this.address = address;
+            this.capacity = size;
+            this.limit = size;
+        }
+    }
+}
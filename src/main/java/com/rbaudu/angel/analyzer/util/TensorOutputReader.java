@@ -0,0 +1,74 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.tensorflow.ndarray.buffer.DataBuffers;
+import org.tensorflow.ndarray.buffer.FloatDataBuffer;
+import org.tensorflow.types.TFloat32;
+
+/**
+ * Lecture des tensors de sortie dans des tableaux primitifs réutilisés.
+ * <p>
+ * Chaque thread dispose d'un tableau par emplacement (une sortie du modèle = un emplacement),
+ * dimensionné d'après la taille réelle du tensor et agrandi uniquement si une sortie plus
+ * grande apparaît. En régime établi, la lecture d'une sortie n'alloue rien sur le tas.
+ * <p>
+ * Le tableau retourné est réutilisé au prochain appel sur le même emplacement et le même
+ * thread : seuls les {@code tensor.size()} premiers éléments sont significatifs.
+ */
+public class TensorOutputReader {
+
+    private final ThreadLocal<Slot[]> slots;
+
+    /**
+     * @param slotCount Nombre de sorties lues simultanément
+     */
+    public TensorOutputReader(int slotCount) {
+        this.slots = ThreadLocal.withInitial(() -> {
+            Slot[] s = new Slot[slotCount];
+            for (int i = 0; i < slotCount; i++) {
+                s[i] = new Slot();
+            }
+            return s;
+        });
+    }
+
+    /**
+     * Copie en bloc un tensor float32 dans le tableau réutilisé d'un emplacement.
+     * @param tensor Tensor à lire
+     * @param slot Emplacement (0 à slotCount - 1)
+     * @return Tableau contenant les valeurs du tensor dans ses premières cases
+     */
+    public float[] readFloats(TFloat32 tensor, int slot) {
+        return slots.get()[slot].read(tensor);
+    }
+
+    /**
+     * Retourne le tableau d'un emplacement tel que laissé par la dernière lecture du thread,
+     * sans relire de tensor (ex: images suivantes d'un même batch).
+     * @param slot Emplacement (0 à slotCount - 1)
+     * @return Tableau de l'emplacement
+     */
+    public float[] current(int slot) {
+        return slots.get()[slot].data;
+    }
+
+    /**
+     * Tableau réutilisé et sa vue en DataBuffer.
+     */
+    private static final class Slot {
+        private float[] data = new float[0];
+        private FloatDataBuffer buffer = DataBuffers.of(data, false, false);
+
+        float[] read(TFloat32 tensor) {
+            long size = tensor.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Tensor trop volumineux pour un tableau Java: " + size);
+            }
+            if (size > data.length) {
+                data = new float[(int) size];
+                buffer = DataBuffers.of(data, false, false);
+            }
+            tensor.read(buffer);
+            return data;
+        }
+    }
+}
@@ -6,16 +6,19 @@ import org.bytedeco.opencv.global.opencv_imgproc;
 import org.springframework.stereotype.Component;
 import org.tensorflow.Tensor;
 import org.tensorflow.ndarray.Shape;
-import org.tensorflow.ndarray.StdArrays;
 import org.tensorflow.types.TFloat32;
 import org.tensorflow.types.TUint8;
-import org.bytedeco.javacpp.BytePointer;
-import org.bytedeco.javacpp.indexer.UByteRawIndexer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.ByteBuffer;
+import jakarta.annotation.PreDestroy;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_32F;
+import static org.bytedeco.opencv.global.opencv_core.CV_32FC;
+import static org.bytedeco.opencv.global.opencv_core.CV_8U;
 
 /**
  * Utilitaire pour traiter les images vidéo.
@@ -24,6 +27,8 @@ import java.util.Arrays;
 public class VideoUtils {
     private static final Logger logger = LoggerFactory.getLogger(VideoUtils.class);
     
+    private final Map<Long, PreprocessingPipeline> pipelines = new ConcurrentHashMap<>();
+    
     /**
      * Redimensionne une image pour l'entrée du modèle
      * @param frame Image à redimensionner
@@ -61,71 +66,65 @@ public class VideoUtils {
     }
     
     /**
-     * Convertit une image OpenCV en Tensor TensorFlow au format uint8 (0-255)
+     * Convertit une image OpenCV en Tensor TensorFlow au format uint8 (0-255).
+     * Les pixels sont copiés directement dans la mémoire native du tensor, sans tableau Java
+     * intermédiaire (copie en bloc si l'image est continue, ligne par ligne sinon).
      * @param frame Image OpenCV (RGB)
      * @param height Hauteur du tensor
      * @param width Largeur du tensor
      * @return Tensor TensorFlow
      */
     public Tensor matToTensorUint8(Mat frame, int height, int width) {
+        checkFrame(frame, height, width);
         int channels = frame.channels();
         
-        // Format: [1, height, width, 3]
-        byte[][][][] pixelData = new byte[1][height][width][channels];
-        
-        // Conversion des données OpenCV en tableau de bytes
-        BytePointer bytePtr = frame.ptr();
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pos = y * width * channels + x * channels;
-                for (int c = 0; c < channels; c++) {
-                    // Conserver les valeurs brutes (0-255)
-                    pixelData[0][y][x][c] = bytePtr.get(pos + c);
-                }
-            }
-        }
-        
-        // Création du tensor uint8 avec la nouvelle API TensorFlow
+        // Format: [1, height, width, channels]
         Shape shape = Shape.of(1, height, width, channels);
         
-        // Utilisation de tensorOf avec un consumer pour copier les données
-        return TUint8.tensorOf(shape, data -> StdArrays.copyTo(pixelData, data));
+        // Copie des pixels bruts (0-255) dans la mémoire du tensor
+        return TUint8.tensorOf(shape, tensor -> TensorMemory.copyFrom(frame, tensor, 0));
     }
     
     /**
-     * Convertit une image OpenCV en Tensor TensorFlow au format float32 (0-1)
+     * Convertit une image OpenCV en Tensor TensorFlow au format float32 (0-1).
+     * La normalisation est effectuée par OpenCV directement dans la mémoire native du tensor.
      * @param frame Image OpenCV (RGB)
      * @param height Hauteur du tensor
      * @param width Largeur du tensor
      * @return Tensor TensorFlow TFloat32
      */
     public Tensor matToTensorFloat32(Mat frame, int height, int width) {
+        checkFrame(frame, height, width);
         int channels = frame.channels();
         
-        // Créer un tableau pour les pixels normalisés
-        float[][][][] pixelData = new float[1][height][width][channels];
+        // Format: [1, height, width, channels]
+        Shape shape = Shape.of(1, height, width, channels);
         
-        try (UByteRawIndexer indexer = frame.createIndexer()) {
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    for (int c = 0; c < channels; c++) {
-                        // Normalisation entre 0-1
-                        pixelData[0][y][x][c] = indexer.get(y, x, c) / 255.0f;
-                    }
-                }
+        // Normalisation entre 0-1 écrite directement dans le tensor (la Mat partage sa mémoire)
+        return TFloat32.tensorOf(shape, tensor -> {
+            try (Mat view = TensorMemory.asMat(tensor, 0, height, width, CV_32FC(channels))) {
+                frame.convertTo(view, CV_32F, 1.0 / 255, 0);
             }
+        });
+    }
+    
+    /**
+     * Vérifie qu'une image correspond aux dimensions attendues du tensor et qu'elle est en 8 bits.
+     */
+    private void checkFrame(Mat frame, int height, int width) {
+        if (frame.rows() != height || frame.cols() != width) {
+            throw new IllegalArgumentException("Dimensions de l'image (" + frame.cols() + "x" + frame.rows()
+                    + ") différentes de celles du tensor (" + width + "x" + height + ")");
+        }
+        if (frame.depth() != CV_8U) {
+            throw new IllegalArgumentException("L'image doit être codée sur 8 bits par canal");
         }
-        
-        // Création du tensor TFloat32 avec la nouvelle API TensorFlow
-        Shape shape = Shape.of(1, height, width, channels);
-        
-        // Utilisation de tensorOf avec un consumer pour copier les données
-        return TFloat32.tensorOf(shape, data -> StdArrays.copyTo(pixelData, data));
     }
     
     /**
-     * Prépare une image OpenCV pour l'entrée du modèle TensorFlow
+     * Prépare une image OpenCV pour l'entrée du modèle TensorFlow.
+     * Délègue à un {@link PreprocessingPipeline} mis en cache par taille et type de tensor,
+     * ce qui évite les Mat intermédiaires créées à chaque image.
      * @param frame Image source
      * @param targetWidth Largeur cible
      * @param targetHeight Hauteur cible
@@ -133,18 +132,20 @@ public class VideoUtils {
      * @return Tensor prêt pour l'inférence
      */
     public Tensor prepareImageForModel(Mat frame, int targetWidth, int targetHeight, boolean asFloat32) {
-        // Redimensionner et convertir en RGB
-        Mat resized = resizeFrame(frame, targetWidth, targetHeight);
-        Mat rgb = bgrToRgb(resized);
-        
-        // Conversion en tensor selon le type demandé
-        if (asFloat32) {
-            // Pour les modèles qui attendent des valeurs normalisées (0-1)
-            return matToTensorFloat32(rgb, targetHeight, targetWidth);
-        } else {
-            // Pour les modèles qui attendent des valeurs brutes (0-255)
-            return matToTensorUint8(rgb, targetHeight, targetWidth);
-        }
+        long key = ((long) targetWidth << 32 | targetHeight) << 1 | (asFloat32 ? 1 : 0);
+        PreprocessingPipeline pipeline = pipelines.computeIfAbsent(key, k -> asFloat32
+                ? PreprocessingPipeline.float32Rgb(targetWidth, targetHeight)
+                : PreprocessingPipeline.uint8Rgb(targetWidth, targetHeight));
+        return pipeline.apply(frame);
+    }
+    
+    /**
+     * Libère les Mat de travail des pipelines de prétraitement mis en cache.
+     */
+    @PreDestroy
+    public void close() {
+        pipelines.values().forEach(PreprocessingPipeline::close);
+        pipelines.clear();
     }
     
     /**
@@ -153,6 +154,9 @@ public class VideoUtils {
      * @param name Nom du tensor pour l'identification dans les logs
      */
     public void debugTensor(Tensor tensor, String name) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
         logger.debug("{} - Type: {}, Shape: {}", 
             name,
             tensor.getClass().getSimpleName(),
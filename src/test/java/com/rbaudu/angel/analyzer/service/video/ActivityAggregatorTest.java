@@ -0,0 +1,110 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import com.rbaudu.angel.analyzer.model.ActivityType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests du tampon circulaire, de la moyenne exponentielle et de l'hystérésis de
+ * {@link ActivityAggregator}.
+ */
+class ActivityAggregatorTest {
+
+    private static final float DELTA = 1e-6f;
+    private static final ActivityType ACTIVITY = ActivityType.values()[0];
+
+    private ActivityAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        InferenceConfig config = new InferenceConfig();
+        config.setAggregationWindowSize(4);
+        config.setAggregationEmaAlpha(0.5);
+        config.setAggregationEnterThreshold(0.6);
+        config.setAggregationExitThreshold(0.4);
+        config.setAggregationMinFrames(2);
+        aggregator = new ActivityAggregator(config);
+    }
+
+    @Test
+    void windowMeanCoversOnlyLastFrames() {
+        update(1f);
+        update(1f);
+        assertEquals(1f, windowMean(), DELTA);
+        update(0f);
+        update(0f);
+        assertEquals(0.5f, windowMean(), DELTA);
+
+        // Cinquième image : la première sort de la fenêtre de 4
+        update(0f);
+        assertEquals(0.25f, windowMean(), DELTA);
+        update(0f);
+        update(0f);
+        assertEquals(0f, windowMean(), DELTA);
+    }
+
+    @Test
+    void emaStartsAtFirstValueThenSmooths() {
+        update(1f);
+        assertEquals(1f, ema(), DELTA);
+        update(0f);
+        assertEquals(0.5f, ema(), DELTA);
+        update(0f);
+        assertEquals(0.25f, ema(), DELTA);
+        update(1f);
+        assertEquals(0.625f, ema(), DELTA);
+    }
+
+    @Test
+    void stableActivityUsesHysteresis() {
+        // Pas d'activité stable avant minFrames images
+        assertNull(update(1f));
+        assertEquals(ACTIVITY, update(1f));
+        assertFalse(aggregator.isSettled("cam"));
+
+        // La moyenne passe sous le seuil d'entrée, mais l'EMA reste au-dessus du seuil de sortie
+        for (int i = 0; i < 4; i++) {
+            assertEquals(ACTIVITY, update(0.5f));
+        }
+        assertEquals(0.5f, windowMean(), DELTA);
+        assertTrue(ema() > 0.4f);
+        assertTrue(aggregator.isSettled("cam"));
+
+        // L'EMA passe sous le seuil de sortie : l'activité n'est plus stable
+        assertNull(update(0f));
+        assertNull(aggregator.getStableActivity("cam"));
+        assertFalse(aggregator.isSettled("cam"));
+    }
+
+    @Test
+    void resetClearsHistory() {
+        update(1f);
+        update(1f);
+        aggregator.reset("cam");
+
+        assertNull(aggregator.getStableActivity("cam"));
+        assertEquals(0f, windowMean(), DELTA);
+        assertNull(update(1f));
+        assertEquals(1f, ema(), DELTA);
+    }
+
+    private ActivityType update(float score) {
+        ActivityScores scores = new ActivityScores();
+        scores.set(ACTIVITY, score);
+        return aggregator.update("cam", scores);
+    }
+
+    private float windowMean() {
+        return aggregator.getWindowMean("cam", new ActivityScores()).get(ACTIVITY);
+    }
+
+    private float ema() {
+        return aggregator.getEma("cam", new ActivityScores()).get(ACTIVITY);
+    }
+}
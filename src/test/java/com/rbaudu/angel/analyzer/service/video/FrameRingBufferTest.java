@@ -0,0 +1,127 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC3;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la publication et de la validation (seqlock) de {@link FrameRingBuffer},
+ * notamment après un tour complet du tampon.
+ */
+class FrameRingBufferTest {
+
+    private static final int CAPACITY = 3;
+    private static final int SIZE = 4;
+
+    private FrameRingBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new FrameRingBuffer(CAPACITY, SIZE, SIZE, CV_8UC1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        buffer.close();
+    }
+
+    @Test
+    void publishesIncreasingSequences() {
+        assertEquals(0, buffer.getPublishedSequence());
+        assertFalse(buffer.isValid(0));
+        assertFalse(buffer.isValid(1));
+
+        assertEquals(1, publish(10));
+        assertEquals(2, publish(20));
+        assertEquals(2, buffer.getPublishedSequence());
+        assertEquals(1, buffer.getOldestSequence());
+        assertTrue(buffer.isValid(1));
+        assertTrue(buffer.isValid(2));
+        assertFalse(buffer.isValid(3));
+        assertEquals(10, value(buffer.peek(1)));
+        assertEquals(20, value(buffer.peek(2)));
+    }
+
+    @Test
+    void overwrittenFramesBecomeInvalidAfterWrapAround() {
+        for (int i = 1; i <= CAPACITY; i++) {
+            publish(i);
+        }
+        assertTrue(buffer.isValid(1));
+
+        // La quatrième image réutilise l'emplacement de la première
+        Mat slot = buffer.peek(1);
+        assertEquals(4, publish(4));
+        assertFalse(buffer.isValid(1));
+        assertNull(buffer.peek(1));
+        assertEquals(2, buffer.getOldestSequence());
+        assertTrue(buffer.isValid(4));
+        assertEquals(4, value(slot));
+
+        // Tours suivants : seules les CAPACITY dernières séquences restent valides
+        for (int i = 5; i <= 3 * CAPACITY + 1; i++) {
+            publish(i);
+        }
+        long last = buffer.getPublishedSequence();
+        for (long sequence = 1; sequence <= last; sequence++) {
+            assertEquals(sequence > last - CAPACITY, buffer.isValid(sequence), "Séquence " + sequence);
+        }
+    }
+
+    @Test
+    void copyIsConsistentOnlyForAvailableFrames() {
+        publish(7);
+        try (Mat target = new Mat()) {
+            assertTrue(buffer.copy(1, target));
+            assertEquals(7, value(target));
+
+            for (int i = 0; i < CAPACITY; i++) {
+                publish(i);
+            }
+            assertFalse(buffer.copy(1, target));
+        }
+    }
+
+    @Test
+    void resizesFramesOfAnotherSize() {
+        try (Mat large = new Mat(2 * SIZE, 3 * SIZE, CV_8UC1, Scalar.all(42))) {
+            long sequence = buffer.publish(large);
+            Mat slot = buffer.peek(sequence);
+            assertNotNull(slot);
+            assertEquals(SIZE, slot.cols());
+            assertEquals(SIZE, slot.rows());
+            assertEquals(42, value(slot));
+        }
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new FrameRingBuffer(1, SIZE, SIZE, CV_8UC1));
+        assertThrows(IllegalArgumentException.class, () -> new FrameRingBuffer(CAPACITY, 0, SIZE, CV_8UC1));
+        try (Mat color = new Mat(SIZE, SIZE, CV_8UC3, Scalar.all(0))) {
+            assertThrows(IllegalArgumentException.class, () -> buffer.publish(color));
+        }
+        assertEquals(0, buffer.getPublishedSequence());
+    }
+
+    private long publish(int value) {
+        try (Mat frame = new Mat(SIZE, SIZE, CV_8UC1, Scalar.all(value))) {
+            return buffer.publish(frame);
+        }
+    }
+
+    private static int value(Mat mat) {
+        return mat.data().get(0) & 0xFF;
+    }
+}
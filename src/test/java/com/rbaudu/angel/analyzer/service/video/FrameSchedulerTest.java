@@ -0,0 +1,139 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la politique d'abandon de {@link FrameScheduler} (la dernière image gagne).
+ */
+class FrameSchedulerTest {
+
+    private FrameScheduler scheduler;
+    private Mat frame;
+
+    @BeforeEach
+    void setUp() {
+        InferenceConfig config = new InferenceConfig();
+        config.setSchedulerThreads(1);
+        config.setSchedulerStreamQueueCapacity(1);
+        scheduler = new FrameScheduler(config);
+        frame = new Mat();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+        frame.close();
+    }
+
+    @Test
+    void dropsOldestPendingFramesWhenStreamFallsBehind() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> running = scheduler.submit("cam", frame, f -> {
+            started.countDown();
+            await(release);
+            return 0;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Le flux est occupé : seules les images les plus récentes restent en attente
+        CompletableFuture<Integer> first = scheduler.submit("cam", frame, f -> 1);
+        CompletableFuture<Integer> second = scheduler.submit("cam", frame, f -> 2);
+        CompletableFuture<Integer> latest = scheduler.submit("cam", frame, f -> 3);
+        assertTrue(first.isCancelled());
+        assertTrue(second.isCancelled());
+        assertEquals(1, scheduler.getQueueDepth("cam"));
+
+        release.countDown();
+        assertEquals(0, running.get(5, TimeUnit.SECONDS));
+        assertEquals(3, latest.get(5, TimeUnit.SECONDS));
+
+        FrameScheduler.StreamStats stats = awaitProcessed("cam", 2);
+        assertEquals(4, stats.getSubmitted());
+        assertEquals(2, stats.getDropped());
+        assertEquals(2, stats.getProcessed());
+        assertEquals(0, stats.getQueueDepth());
+    }
+
+    @Test
+    void cancelledFrameIsNotCountedAsProcessed() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> running = scheduler.submit("cam", frame, f -> {
+            started.countDown();
+            await(release);
+            return 0;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Annulée par l'appelant avant d'avoir été traitée
+        CompletableFuture<Integer> cancelled = scheduler.submit("cam", frame, f -> 1);
+        assertTrue(cancelled.cancel(false));
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        CompletableFuture<Integer> after = scheduler.submit("cam", frame, f -> 2);
+        assertEquals(2, after.get(5, TimeUnit.SECONDS));
+
+        FrameScheduler.StreamStats stats = awaitProcessed("cam", 2);
+        assertEquals(2, stats.getProcessed());
+        assertEquals(0, stats.getDropped());
+    }
+
+    @Test
+    void streamsAreIndependent() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> slow = scheduler.submit("slow", frame, f -> {
+            started.countDown();
+            await(release);
+            return 0;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        scheduler.submit("slow", frame, f -> 1);
+        scheduler.submit("slow", frame, f -> 2);
+
+        // Le retard d'un flux n'entraîne pas d'abandon sur un autre
+        CompletableFuture<Integer> other = scheduler.submit("other", frame, f -> 5);
+        assertFalse(other.isCancelled());
+        release.countDown();
+        assertEquals(5, other.get(5, TimeUnit.SECONDS));
+        slow.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, scheduler.getStreamStats().get("slow").getDropped());
+        assertEquals(0, scheduler.getStreamStats().get("other").getDropped());
+    }
+
+    /**
+     * Le compteur est incrémenté après la complétion du futur : on attend qu'il soit à jour.
+     */
+    private FrameScheduler.StreamStats awaitProcessed(String streamId, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        FrameScheduler.StreamStats stats = scheduler.getStreamStats().get(streamId);
+        while (stats.getProcessed() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+            stats = scheduler.getStreamStats().get(streamId);
+        }
+        return stats;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.rbaudu.angel.analyzer.service.video;
+
+import com.rbaudu.angel.analyzer.config.InferenceConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de l'éviction LRU, de la durée de validité et du calcul unique par flux de
+ * {@link StreamResultCache}.
+ */
+class StreamResultCacheTest {
+
+    private static final long TTL_MS = 10_000;
+
+    private StreamResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        InferenceConfig config = new InferenceConfig();
+        config.setResultCacheTtlMs(TTL_MS);
+        config.setResultCacheMaxStreams(2);
+        cache = new StreamResultCache(null, config);
+    }
+
+    @Test
+    void servesResultWithinTtlAndRecomputesAfterExpiry() {
+        FrameAnalysis fresh = analysis("cam", System.currentTimeMillis());
+        cache.put("cam", fresh);
+        assertSame(fresh, cache.getOrCompute("cam", () -> {
+            throw new AssertionError("Le résultat en cache doit être réutilisé");
+        }));
+        assertEquals(1, cache.getHitCount());
+
+        FrameAnalysis expired = analysis("other", System.currentTimeMillis() - TTL_MS - 1);
+        cache.put("other", expired);
+        assertNull(cache.get("other"));
+        FrameAnalysis recomputed = analysis("other", System.currentTimeMillis());
+        assertSame(recomputed, cache.getOrCompute("other", () -> recomputed));
+        assertSame(recomputed, cache.get("other"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedStream() {
+        long now = System.currentTimeMillis();
+        cache.put("a", analysis("a", now));
+        cache.put("b", analysis("b", now));
+        // "a" devient le plus récemment consulté : "b" est évincé à l'arrivée de "c"
+        cache.get("a");
+        cache.put("c", analysis("c", now));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get("b"));
+        assertTrue(cache.get("a") != null && cache.get("c") != null);
+    }
+
+    @Test
+    void ignoresOlderResult() {
+        long now = System.currentTimeMillis();
+        FrameAnalysis latest = analysis("cam", now);
+        cache.put("cam", latest);
+        cache.put("cam", analysis("cam", now - 1_000));
+        assertSame(latest, cache.get("cam"));
+    }
+
+    @Test
+    void concurrentMissesShareOneComputation() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FrameAnalysis computed = analysis("cam", System.currentTimeMillis());
+
+        CompletableFuture<FrameAnalysis> leader = CompletableFuture.supplyAsync(() ->
+                cache.getOrCompute("cam", () -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    return computed;
+                }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<FrameAnalysis> follower = CompletableFuture.supplyAsync(() ->
+                cache.getOrCompute("cam", () -> {
+                    loads.incrementAndGet();
+                    return analysis("cam", System.currentTimeMillis());
+                }));
+        release.countDown();
+
+        assertSame(computed, leader.get(5, TimeUnit.SECONDS));
+        assertSame(computed, follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    private static FrameAnalysis analysis(String streamId, long timestamp) {
+        return new FrameAnalysis(streamId, 0, timestamp, false, new PresenceResult(), new ActivityScores(),
+                null, false, false);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests des buckets log-linéaires et des percentiles de {@link LatencyHistogram}.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesHaveTheirOwnBucket() {
+        for (int v = 0; v < 8; v++) {
+            assertEquals(v, LatencyHistogram.index(v));
+            assertEquals(v, LatencyHistogram.upperBound(v));
+        }
+    }
+
+    @Test
+    void bucketsAreContiguousAndBoundedByRelativeError() {
+        int previous = LatencyHistogram.index(0);
+        for (long v = 1; v < 1_000_000; v++) {
+            int index = LatencyHistogram.index(v);
+            assertTrue(index == previous || index == previous + 1, "Bucket non contigu pour " + v);
+            if (index != previous) {
+                // Première valeur d'un bucket : juste après la borne du précédent
+                assertEquals(LatencyHistogram.upperBound(previous) + 1, v);
+            }
+            long upper = LatencyHistogram.upperBound(index);
+            assertTrue(v <= upper, "Borne " + upper + " inférieure à " + v);
+            assertTrue(upper - v <= v / 8, "Erreur relative excessive pour " + v);
+            previous = index;
+        }
+    }
+
+    @Test
+    void valuesBeyondRangeGoToLastBucket() {
+        int last = LatencyHistogram.index(Long.MAX_VALUE);
+        assertEquals(last, LatencyHistogram.index(1L << 50));
+        assertTrue(LatencyHistogram.index(1L << 40) < last);
+    }
+
+    @Test
+    void snapshotReportsPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, snapshot.getMaxMicros());
+        assertEquals(500.5, snapshot.getMeanMicros(), 1e-9);
+        assertWithinBucket(500, snapshot.getP50Micros());
+        assertWithinBucket(900, snapshot.getP90Micros());
+        assertWithinBucket(990, snapshot.getP99Micros());
+        assertWithinBucket(999, snapshot.getP999Micros());
+    }
+
+    @Test
+    void emptyAndNegativeDurations() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getP99Micros());
+        assertEquals(0.0, histogram.snapshot().getMeanMicros());
+
+        histogram.record(-5_000);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.getCount());
+        assertEquals(0, snapshot.getMaxMicros());
+        assertEquals(0, snapshot.getP50Micros());
+    }
+
+    private static void assertWithinBucket(long expected, long actual) {
+        assertEquals(LatencyHistogram.upperBound(LatencyHistogram.index(expected)), actual);
+    }
+}
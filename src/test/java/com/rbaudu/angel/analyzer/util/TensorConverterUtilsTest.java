@@ -0,0 +1,194 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.ndarray.buffer.DataBuffers;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TUint8;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC1;
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC3;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la conversion uint8 → float32 (normalisation par canal, variante parallèle) et de
+ * la conversion tensor → image (élément du batch, saturation) de {@link TensorConverterUtils}.
+ */
+class TensorConverterUtilsTest {
+
+    private static final float DELTA = 1e-5f;
+
+    private final TensorConverterUtils converter = new TensorConverterUtils();
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void normalizesRank4TensorPerChannel() {
+        float[] mean = {0.5f, 0.25f, 0f};
+        float[] std = {0.5f, 0.25f, 2f};
+        // [n, h, w, c] : 2 images de 1 x 2 pixels RGB
+        byte[] data = new byte[2 * 2 * 3];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 20);
+        }
+        try (TUint8 input = uint8(Shape.of(2, 1, 2, 3), data);
+             TFloat32 output = TFloat32.tensorOf(input.shape())) {
+            converter.convertUint8ToFloat32(input, output, mean, std);
+
+            for (int n = 0; n < 2; n++) {
+                for (int w = 0; w < 2; w++) {
+                    for (int c = 0; c < 3; c++) {
+                        int raw = data[(n * 2 + w) * 3 + c] & 0xFF;
+                        float expected = (raw / 255f - mean[c]) / std[c];
+                        assertEquals(expected, output.getFloat(n, 0, w, c), DELTA, "Élément " + n + "," + w + "," + c);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsMismatchedNormalization() {
+        try (TUint8 input = uint8(Shape.of(1, 1, 2, 3), new byte[6]);
+             TFloat32 output = TFloat32.tensorOf(input.shape())) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> converter.convertUint8ToFloat32(input, output, new float[] {0f}, null));
+            assertThrows(IllegalArgumentException.class,
+                    () -> converter.convertUint8ToFloat32(input, output, null, new float[] {1f, 0f, 1f}));
+        }
+    }
+
+    @Test
+    void parallelConversionMatchesSequential() {
+        float[] mean = {0.485f, 0.456f, 0.406f};
+        float[] std = {0.229f, 0.224f, 0.225f};
+        // 1,5 M éléments : au-delà du seuil de parallélisation, dernier bloc incomplet
+        Shape shape = Shape.of(1, 500, 1000, 3);
+        byte[] data = new byte[(int) shape.size()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + i / 7);
+        }
+        AtomicInteger submitted = new AtomicInteger();
+        try (TUint8 input = uint8(shape, data);
+             TFloat32 sequential = TFloat32.tensorOf(shape);
+             TFloat32 parallel = TFloat32.tensorOf(shape)) {
+            converter.convertUint8ToFloat32(input, sequential, mean, std, null);
+            converter.convertUint8ToFloat32(input, parallel, mean, std, task -> {
+                submitted.incrementAndGet();
+                pool.execute(task);
+            });
+
+            assertTrue(submitted.get() > 0, "Aucun bloc confié à l'exécuteur");
+            assertArrayEquals(floats(sequential), floats(parallel));
+        }
+    }
+
+    @Test
+    void parallelConversionFallsBackToCallerWhenExecutorRejects() {
+        Shape shape = Shape.of(1, 1024, 1024, 1);
+        byte[] data = new byte[(int) shape.size()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        pool.shutdown();
+        try (TUint8 input = uint8(shape, data);
+             TFloat32 output = TFloat32.tensorOf(shape)) {
+            converter.convertUint8ToFloat32(input, output, null, null, pool);
+
+            float[] values = floats(output);
+            for (int i = 0; i < values.length; i++) {
+                assertEquals((data[i] & 0xFF) / 255f, values[i], DELTA);
+            }
+        }
+    }
+
+    @Test
+    void tensorToMatSelectsBatchElement() {
+        // [n, h, w, c] : 3 images de 2 x 2 pixels RGB, chaque image remplie de sa valeur
+        byte[] data = new byte[3 * 2 * 2 * 3];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (10 * (i / 12 + 1) + i % 3);
+        }
+        try (TUint8 tensor = uint8(Shape.of(3, 2, 2, 3), data);
+             Mat target = new Mat()) {
+            for (int n = 0; n < 3; n++) {
+                assertReusedTarget(target, converter.tensorToMat(tensor, n, target));
+                assertEquals(CV_8UC3, target.type());
+                for (int row = 0; row < 2; row++) {
+                    for (int col = 0; col < 2; col++) {
+                        for (int c = 0; c < 3; c++) {
+                            assertEquals(10 * (n + 1) + c, pixel(target, row, col, c), "Image " + n);
+                        }
+                    }
+                }
+            }
+            assertThrows(IllegalArgumentException.class, () -> converter.tensorToMat(tensor, 3, target));
+            assertThrows(IllegalArgumentException.class, () -> converter.tensorToMat(tensor, -1, target));
+        }
+    }
+
+    @Test
+    void tensorToMatSaturatesFloatValues() {
+        // [n, h, w, c] : 2 images de 1 x 4 pixels, la seconde hors de [0, 1]
+        float[] data = {0f, 0.2f, 1f, 0.6f, 1.5f, -0.5f, 42f, -3f};
+        try (TFloat32 tensor = TFloat32.tensorOf(Shape.of(2, 1, 4, 1), DataBuffers.of(data, true, false));
+             Mat target = new Mat()) {
+            converter.tensorToMat(tensor, 0, target);
+            assertEquals(CV_8UC1, target.type());
+            assertEquals(4, target.cols());
+            assertEquals(1, target.rows());
+            assertArrayEquals(new int[] {0, 51, 255, 153}, row(target));
+
+            converter.tensorToMat(tensor, 1, target);
+            assertArrayEquals(new int[] {255, 0, 255, 0}, row(target));
+        }
+    }
+
+    private static void assertReusedTarget(Mat expected, Mat actual) {
+        assertSame(expected, actual, "L'image cible doit être réutilisée");
+        assertEquals(2, actual.rows());
+        assertEquals(2, actual.cols());
+    }
+
+    private static int pixel(Mat mat, int row, int col, int channel) {
+        return mat.ptr(row, col).get(channel) & 0xFF;
+    }
+
+    private static int[] row(Mat mat) {
+        int[] values = new int[mat.cols()];
+        for (int col = 0; col < values.length; col++) {
+            values[col] = pixel(mat, 0, col, 0);
+        }
+        return values;
+    }
+
+    private static TUint8 uint8(Shape shape, byte[] data) {
+        return TUint8.tensorOf(shape, DataBuffers.of(data, true, false));
+    }
+
+    private static float[] floats(TFloat32 tensor) {
+        float[] values = new float[(int) tensor.shape().size()];
+        tensor.read(DataBuffers.of(values, false, false));
+        return values;
+    }
+}